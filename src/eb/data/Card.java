@@ -1,10 +1,14 @@
 package eb.data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.time.Clock;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.logging.Logger;
 
 import eb.utilities.Utilities;
 
@@ -20,6 +24,15 @@ public class Card implements Serializable {
 	// Automatically generated ID for serialization.
 	private static final long serialVersionUID = -2746012998758766327L;
 
+	// The reviews used to be stored as a list of Review objects; the serialized
+	// form of a card still contains that list, so older versions of Eb can
+	// read it.
+	private static final ObjectStreamField[] serialPersistentFields = {
+	    new ObjectStreamField("m_textOnFront", String.class),
+	    new ObjectStreamField("m_textOnBack", String.class),
+	    new ObjectStreamField("m_creationInstant", Instant.class),
+	    new ObjectStreamField("m_reviews", List.class) };
+
 	// The text/contents of the front of the card. Should never be null.
 	private String m_textOnFront;
 
@@ -29,8 +42,37 @@ public class Card implements Serializable {
 	// The time/instant when this card was created.
 	private Instant m_creationInstant;
 
-	// The reviews of the cards. Should never be null.
-	private List<Review> m_reviews;
+	// The reviews of the card, oldest first. Should never be null.
+	private transient ReviewHistory m_reviews;
+
+	// Summary of the review history, kept up to date by addReview (and rebuilt
+	// after deserialization) so that it need not be recalculated from the list
+	// of reviews each time it is needed.
+	// The length of the current streak of successful reviews.
+	private transient int m_streakSize;
+
+	// The instant of the latest review, in milliseconds since the epoch (only
+	// meaningful if the card has been reviewed).
+	private transient long m_lastReviewInstant;
+
+	// Whether the latest review was successful (false if there are no reviews).
+	private transient boolean m_lastReviewWasSuccess;
+
+	// The number of failed reviews of this card.
+	private transient int m_failureCount;
+
+	// The memory state of the card as modelled by FSRS (see FsrsScheduler): its
+	// stability and difficulty after its first m_memoryStateReviewCount reviews.
+	// Only calculated for decks that use FSRS; the scheduler then only has to
+	// fold in the reviews added since it last looked at the card.
+	private transient int m_memoryStateReviewCount;
+	private transient double m_stability;
+	private transient double m_difficulty;
+
+	// The collection this card belongs to (if any); needs to be told when the
+	// front of the card changes, as it indexes cards by their fronts, and when
+	// the back changes or the card is reviewed.
+	private transient CardCollection m_collection;
 
 	/**
 	 * Creates a new card; ensures that the input is valid. Note that empty cards
@@ -46,6 +88,63 @@ public class Card implements Serializable {
 	 *          not be null.
 	 */
 	public Card(String textOnFront, String textOnBack) {
+		this(textOnFront, textOnBack, Clock.systemDefaultZone());
+	}
+
+	/**
+	 * Creates a new card, whose creation instant is read from the given clock
+	 * (normally the clock of the deck the card is meant for, see
+	 * Deck.getClock()).
+	 *
+	 * @param textOnFront
+	 *          the text for the front of the card. May be a blank string, but may
+	 *          not be null.
+	 * @param textOnBack
+	 *          the text for the back of the card. May be a blank string, but may
+	 *          not be null.
+	 * @param clock
+	 *          the clock that tells when the card is created
+	 */
+	public Card(String textOnFront, String textOnBack, Clock clock) {
+		this(textOnFront, textOnBack, clock.instant(), new ReviewHistory(0));
+	}
+
+	/**
+	 * Creates a card with an existing history, for example one read from disk.
+	 * 
+	 * @param textOnFront
+	 *          the text for the front of the card
+	 * @param textOnBack
+	 *          the text for the back of the card
+	 * @param creationInstant
+	 *          the instant the card was originally created
+	 * @param reviews
+	 *          the reviews of the card, oldest first
+	 */
+	Card(String textOnFront, String textOnBack, Instant creationInstant,
+	    List<Review> reviews) { // package-private
+		this(textOnFront, textOnBack, creationInstant,
+		    new ReviewHistory(reviews.size()));
+		for (Review review : reviews) {
+			appendReview(review);
+		}
+	}
+
+	/**
+	 * Creates a card with an existing history, for example one read from disk.
+	 * The card takes ownership of the history.
+	 * 
+	 * @param textOnFront
+	 *          the text for the front of the card
+	 * @param textOnBack
+	 *          the text for the back of the card
+	 * @param creationInstant
+	 *          the instant the card was originally created
+	 * @param reviews
+	 *          the reviews of the card
+	 */
+	Card(String textOnFront, String textOnBack, Instant creationInstant,
+	    ReviewHistory reviews) { // package-private
 		// preconditions: textOnFront and textOnBack should not be null,
 		// as that is likely due to a logic error somewhere and at least is
 		// rather untidy
@@ -53,14 +152,43 @@ public class Card implements Serializable {
 		    + "the contents of the front of the card should not be null.");
 		Utilities.require(textOnBack != null, "Card constructor) error: "
 		    + "the contents of the back of the card should not be null.");
-
+		Utilities.require(creationInstant != null && reviews != null,
+		    "Card constructor error: the creation instant and the reviews should "
+		        + "not be null.");
 		m_textOnFront = textOnFront;
 		m_textOnBack = textOnBack;
-		m_creationInstant = Instant.now();
-		m_reviews = new ArrayList<>();
+		m_creationInstant = creationInstant;
+		m_reviews = reviews;
+		for (int reviewIndex = 0; reviewIndex < reviews.size(); reviewIndex++) {
+			updateReviewSummary(reviews.getInstant(reviewIndex),
+			    reviews.wasSuccess(reviewIndex));
+		}
+	}
 
-		// postconditions: none. Given valid input (the preconditions have been
-		// met), the card will be created successfully.
+	/**
+	 * Returns a copy of the card that does not belong to any collection, and that
+	 * is not affected by later changes to this card (see FrozenDeck). Takes
+	 * constant time, as the copy shares the review history of this card until
+	 * either of them is reviewed.
+	 * 
+	 * @return a copy of the card
+	 */
+	Card copy() { // package-private
+		return new Card(this);
+	}
+
+	private Card(Card original) {
+		m_textOnFront = original.m_textOnFront;
+		m_textOnBack = original.m_textOnBack;
+		m_creationInstant = original.m_creationInstant;
+		m_reviews = original.m_reviews.copy();
+		m_streakSize = original.m_streakSize;
+		m_lastReviewInstant = original.m_lastReviewInstant;
+		m_lastReviewWasSuccess = original.m_lastReviewWasSuccess;
+		m_failureCount = original.m_failureCount;
+		m_memoryStateReviewCount = original.m_memoryStateReviewCount;
+		m_stability = original.m_stability;
+		m_difficulty = original.m_difficulty;
 	}
 
 	/**
@@ -107,7 +235,7 @@ public class Card implements Serializable {
 		    + "error: no review has taken place yet. Please only call this method "
 		    + "after checking the existence of a review with 'hasBeenReviewed'.");
 		int indexOfLastReview = m_reviews.size() - 1;
-		return m_reviews.get(indexOfLastReview);
+		return m_reviews.getReview(indexOfLastReview);
 	}
 
 	/**
@@ -118,28 +246,73 @@ public class Card implements Serializable {
 	 */
 	boolean hasBeenReviewed() {
 		// preconditions: none. Object exists
-		return !m_reviews.isEmpty();
+		return m_reviews.size() > 0;
 		// postconditions: none. Returns simple boolean.
 	}
 
 	/**
-	 * Returns the instant that this card was created.
+	 * Returns the number of times this card has been reviewed.
 	 * 
-	 * @return the instant that this card was created
+	 * @return the number of reviews of this card
 	 */
-	Instant getCreationInstant() {
-		return m_creationInstant;
+	int getReviewCount() {
+		return m_reviews.size();
 	}
 
 	/**
-	 * Debugging function, helps check that the reviews have proceeded correctly.
-	 * Reports all reviews of this card performed so far.
+	 * Returns the review with the given index (0 being the oldest review). The
+	 * Review object is created for the occasion; code that looks at many
+	 * reviews should rather use getReviewInstant, getReviewThinkingTime and
+	 * wasReviewSuccess.
+	 * 
+	 * @param index
+	 *          the index of the review
+	 * @return the review with the given index
 	 */
-	private void reportReviews() {
-		for (Review review : m_reviews) {
-			Logger.getGlobal()
-			    .info(review.getThinkingTime() + " " + review.wasSuccess());
-		}
+	Review getReview(int index) { // package-private
+		return m_reviews.getReview(index);
+	}
+
+	/**
+	 * Returns the instant of the review with the given index.
+	 * 
+	 * @param index
+	 *          the index of the review (0 being the oldest review)
+	 * @return the instant of the review, in milliseconds since the epoch
+	 */
+	long getReviewInstant(int index) { // package-private
+		return m_reviews.getInstant(index);
+	}
+
+	/**
+	 * Returns the thinking time of the review with the given index.
+	 * 
+	 * @param index
+	 *          the index of the review (0 being the oldest review)
+	 * @return the thinking time of the review, in milliseconds
+	 */
+	int getReviewThinkingTime(int index) { // package-private
+		return m_reviews.getThinkingTime(index);
+	}
+
+	/**
+	 * Returns whether the review with the given index was successful.
+	 * 
+	 * @param index
+	 *          the index of the review (0 being the oldest review)
+	 * @return whether the review was successful
+	 */
+	boolean wasReviewSuccess(int index) { // package-private
+		return m_reviews.wasSuccess(index);
+	}
+
+	/**
+	 * Returns the instant that this card was created.
+	 * 
+	 * @return the instant that this card was created
+	 */
+	Instant getCreationInstant() {
+		return m_creationInstant;
 	}
 
 	/**
@@ -151,8 +324,126 @@ public class Card implements Serializable {
 	public void addReview(Review review) {
 		Utilities.require(review != null,
 		    "Card.addReview error: review cannot be null.");
-		m_reviews.add(review);
-		reportReviews();
+		int previousStreakSize = m_streakSize;
+		appendReview(review);
+		if (m_collection != null) {
+			m_collection.reviewAdded(this, previousStreakSize);
+		}
+	}
+
+	/**
+	 * Adds a review to the review history, and updates the summary of the
+	 * history (streak size, last review).
+	 * 
+	 * @param review
+	 *          the review to be added
+	 */
+	private void appendReview(Review review) {
+		m_reviews.add(review.getInstantMillis(), review.getThinkingMillis(),
+		    review.wasSuccess());
+		updateReviewSummary(review.getInstantMillis(), review.wasSuccess());
+	}
+
+	/**
+	 * Updates the summary of the review history (streak size, last review) with
+	 * a review that has just been added.
+	 * 
+	 * @param instant
+	 *          the instant of the review, in milliseconds since the epoch
+	 * @param wasSuccess
+	 *          whether the review was successful
+	 */
+	private void updateReviewSummary(long instant, boolean wasSuccess) {
+		m_streakSize = wasSuccess ? m_streakSize + 1 : 0;
+		m_lastReviewInstant = instant;
+		m_lastReviewWasSuccess = wasSuccess;
+		if (!wasSuccess) {
+			m_failureCount++;
+		}
+	}
+
+	/**
+	 * Returns the number of reviews that the memory state of the card (see
+	 * FsrsScheduler) has been calculated from; 0 if it has not been calculated.
+	 * 
+	 * @return the number of reviews reflected in the memory state
+	 */
+	int getMemoryStateReviewCount() { // package-private
+		return m_memoryStateReviewCount;
+	}
+
+	double getStability() { // package-private
+		return m_stability;
+	}
+
+	double getDifficulty() { // package-private
+		return m_difficulty;
+	}
+
+	/**
+	 * Stores the memory state of the card, as calculated by the FsrsScheduler.
+	 * 
+	 * @param reviewCount
+	 *          the number of reviews the state has been calculated from
+	 * @param stability
+	 *          the stability of the memory of the card, in days
+	 * @param difficulty
+	 *          the difficulty of the card
+	 */
+	void setMemoryState(int reviewCount, double stability,
+	    double difficulty) { // package-private
+		m_memoryStateReviewCount = reviewCount;
+		m_stability = stability;
+		m_difficulty = difficulty;
+	}
+
+	/**
+	 * Writes the card in its (backwards compatible) serialized form, in which
+	 * the reviews are a list of Review objects.
+	 * 
+	 * @param outStream
+	 *          the stream to write the card to
+	 */
+	private void writeObject(ObjectOutputStream outStream) throws IOException {
+		List<Review> reviews = new ArrayList<>(m_reviews.size());
+		for (int reviewIndex = 0; reviewIndex < m_reviews.size(); reviewIndex++) {
+			reviews.add(m_reviews.getReview(reviewIndex));
+		}
+		ObjectOutputStream.PutField fields = outStream.putFields();
+		fields.put("m_textOnFront", m_textOnFront);
+		fields.put("m_textOnBack", m_textOnBack);
+		fields.put("m_creationInstant", m_creationInstant);
+		fields.put("m_reviews", reviews);
+		outStream.writeFields();
+	}
+
+	/**
+	 * Reads the card from its serialized form, storing the reviews in a
+	 * ReviewHistory and rebuilding the summary of the review history (which is
+	 * not serialized).
+	 * 
+	 * @param inStream
+	 *          the stream to read the card from
+	 */
+	private void readObject(ObjectInputStream inStream)
+	    throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = inStream.readFields();
+		m_textOnFront = (String) fields.get("m_textOnFront", null);
+		m_textOnBack = (String) fields.get("m_textOnBack", null);
+		m_creationInstant = (Instant) fields.get("m_creationInstant", null);
+		@SuppressWarnings("unchecked")
+		List<Review> reviews = (List<Review>) fields.get("m_reviews", null);
+		if (m_textOnFront == null || m_textOnBack == null
+		    || m_creationInstant == null || reviews == null) {
+			throw new IOException("Card.readObject() error: the card is "
+			    + "incomplete.");
+		}
+		m_reviews = new ReviewHistory(reviews.size());
+		m_streakSize = 0;
+		m_failureCount = 0;
+		for (Review review : reviews) {
+			appendReview(review);
+		}
 	}
 
 	/**
@@ -167,7 +458,26 @@ public class Card implements Serializable {
 		Utilities.require(Utilities.isStringValidIdentifier(front),
 		    "Card.setFront() error: "
 		        + "the given front is not a valid identifier");
+		Utilities.require(
+		    m_collection == null || m_collection.canChangeFront(this, front),
+		    "Card.setFront() error: another card in the collection already has "
+		        + "this front.");
+		String oldFront = m_textOnFront;
 		m_textOnFront = front;
+		if (m_collection != null && !oldFront.equals(front)) {
+			m_collection.frontChanged(this, oldFront);
+		}
+	}
+
+	/**
+	 * Registers the collection that this card is part of (or null if the card
+	 * has been removed from its collection).
+	 * 
+	 * @param collection
+	 *          the collection the card belongs to, or null
+	 */
+	void setCollection(CardCollection collection) { // package-private
+		m_collection = collection;
 	}
 
 	/**
@@ -181,7 +491,11 @@ public class Card implements Serializable {
 	public void setBack(String back) {
 		Utilities.require(Utilities.isStringValidIdentifier(back),
 		    "Card.setBack() error: " + "the given back is not a valid identifier");
+		String oldBack = m_textOnBack;
 		m_textOnBack = back;
+		if (m_collection != null && !oldBack.equals(back)) {
+			m_collection.backChanged(this);
+		}
 	}
 
 	/**
@@ -191,15 +505,40 @@ public class Card implements Serializable {
 	 * @return the length of the current reviewing success streak (>=0)
 	 */
 	public int streakSize() {
-		int successfulReviewCount = 0;
-		int lastReviewIndex = m_reviews.size() - 1;
-		int currentReviewIndex = lastReviewIndex;
-		while (currentReviewIndex >= 0
-		    && m_reviews.get(currentReviewIndex).wasSuccess()) {
-			successfulReviewCount++;
-			currentReviewIndex--;
-		}
-		return successfulReviewCount;
+		return m_streakSize;
+	}
+
+	/**
+	 * Returns the instant of the most recent review, in milliseconds since the
+	 * epoch. Like getLastReview, should only be called after checking that the
+	 * card has been reviewed.
+	 * 
+	 * @return the instant of the most recent review, in milliseconds since the
+	 *         epoch
+	 */
+	long getLastReviewInstant() { // package-private
+		Utilities.require(hasBeenReviewed(), "Card.getLastReviewInstant() error: "
+		    + "no review has taken place yet.");
+		return m_lastReviewInstant;
+	}
+
+	/**
+	 * Returns whether the most recent review was successful.
+	 * 
+	 * @return whether the most recent review was successful (false if the card
+	 *         has not been reviewed yet)
+	 */
+	boolean lastReviewWasSuccess() { // package-private
+		return m_lastReviewWasSuccess;
+	}
+
+	/**
+	 * Returns the number of failed reviews of this card.
+	 * 
+	 * @return the number of reviews of this card that were not successful
+	 */
+	int getFailureCount() { // package-private
+		return m_failureCount;
 	}
 
 	public String getHistory() {
@@ -1,11 +1,23 @@
 package eb.data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import eb.disk_io.CardConverter;
@@ -33,14 +45,66 @@ public class CardCollection implements Serializable {
 	// serializable.
 	private static final long serialVersionUID = -6526056675010032709L;
 
-	// the cards in this collection
-	private List<Card> m_cards;
+	// Older versions of Eb stored the cards as a single list called "m_cards".
+	// To keep existing deck files readable (and to keep new deck files readable
+	// by older versions), the serialized form still consists of that list; the
+	// indexes below are rebuilt from it when the collection is read back in.
+	private static final ObjectStreamField[] serialPersistentFields = {
+	    new ObjectStreamField("m_cards", List.class) };
+
+	// the cards in this collection, keyed by their (unique) fronts. Allows
+	// finding a card by its front in constant time.
+	private transient Map<String, Card> m_cardsByFront;
+
+	// the same cards, but ordered by their fronts; used for iterating over the
+	// cards and for writing them to text files in alphabetical order.
+	private transient NavigableMap<String, Card> m_cardsInFrontOrder;
+
+	// the sum of the streak sizes of all cards (see getReviewingPoints), kept up
+	// to date when cards are added, removed or reviewed.
+	private transient int m_reviewingPoints;
+
+	// the objects that keep track of changes to the cards of this collection
+	private transient List<CardCollectionObserver> m_observers;
 
 	/**
 	 * Creates a new CardCollection
 	 */
 	public CardCollection() {
-		m_cards = new LinkedList<>();
+		initIndexes();
+	}
+
+	/**
+	 * Creates the (empty) indexes of the collection.
+	 */
+	private void initIndexes() {
+		m_cardsByFront = new HashMap<>();
+		m_cardsInFrontOrder = new TreeMap<>();
+		m_observers = new ArrayList<>();
+		m_reviewingPoints = 0;
+	}
+
+	/**
+	 * Registers an object that needs to be informed of changes to the cards in
+	 * this collection.
+	 * 
+	 * @param observer
+	 *          the object to be informed of changes.
+	 */
+	void addObserver(CardCollectionObserver observer) { // package-private
+		Utilities.require(observer != null, "CardCollection.addObserver() error: "
+		    + "the observer should not be null.");
+		m_observers.add(observer);
+	}
+
+	/**
+	 * Stops informing the given object of changes to the cards.
+	 * 
+	 * @param observer
+	 *          the object that no longer needs to be informed of changes
+	 */
+	void removeObserver(CardCollectionObserver observer) { // package-private
+		m_observers.remove(observer);
 	}
 
 	/**
@@ -50,7 +114,7 @@ public class CardCollection implements Serializable {
 	 * @return the number of cards in the CardCollection
 	 */
 	public int getSize() {
-		return m_cards.size();
+		return m_cardsByFront.size();
 	}
 
 	/**
@@ -61,10 +125,10 @@ public class CardCollection implements Serializable {
 	 *          the writer to which the cards have to be written.
 	 */
 	public void writeCards(Writer writer, Function<Card, String> outputter) {
-		m_cards.stream()
-		    .sorted((firstCard, secondCard) -> firstCard.getFront()
-		        .compareTo(secondCard.getFront()))
-		    .forEach(card -> CardConverter.writeLine(writer, card, outputter));
+		// the cards are already ordered by front, so no sorting is needed.
+		for (Card card : m_cardsInFrontOrder.values()) {
+			CardConverter.writeLine(writer, card, outputter);
+		}
 	}
 
 	/**
@@ -93,7 +157,7 @@ public class CardCollection implements Serializable {
 	 *
 	 * @return whether the card can legally be added to the deck.
 	 */
-	private boolean canAddCard(Card card) {
+	boolean canAddCard(Card card) { // package-private
 		// preconditions: the card should not be null. Otherwise, all cards,
 		// even invalid ones, should be able to be handled by this method.
 		Utilities.require(card != null, "LogicalDeck.canAddCard() error: "
@@ -119,12 +183,180 @@ public class CardCollection implements Serializable {
 		        + "method has to be invoked first to check the possibility of the "
 		        + "current method.");
 
-		final boolean cardAddSuccessful = m_cards.add(card);
+		final int oldSize = getSize();
+		index(card);
 
 		// postconditions: the deck should have been grown by one.
-		Utilities.require(cardAddSuccessful, "LogicalDeck.addCard() error: "
+		Utilities.require(getSize() == oldSize + 1, "LogicalDeck.addCard() error: "
 		    + " something has gone wrong while adding the card to the deck.");
-		BlackBoard.post(new Update(UpdateType.DECK_CHANGED));
+		m_observers.forEach(observer -> observer.cardAdded(card));
+		BlackBoard.post(Update.withPayload(UpdateType.DECK_CHANGED,
+		    new DeckChange(Collections.singletonList(card),
+		        Collections.emptyList())));
+	}
+
+	/**
+	 * A number of additions and removals that are to be applied to the
+	 * collection together (see edit()). The changes are checked when they are
+	 * made, against the collection as it would be after the earlier changes of
+	 * the batch, but only applied to the collection once the batch is complete.
+	 */
+	public class Batch {
+		// the changes, in the order in which they were made
+		private final List<Card> m_changedCards = new ArrayList<>();
+		private final List<Boolean> m_isAddition = new ArrayList<>();
+
+		// the cards under each front that the batch changes, as they will be after
+		// the batch has been applied (null for a removed card)
+		private final Map<String, Card> m_cardsByChangedFront = new HashMap<>();
+
+		private final List<Card> m_addedCards = new ArrayList<>();
+		private final List<Card> m_removedCards = new ArrayList<>();
+
+		private Batch() {
+			// batches are only created by edit()
+		}
+
+		/**
+		 * Adds a card to the collection when the batch is applied.
+		 *
+		 * @param card
+		 *          the card to add; must have a valid front, which is not present
+		 *          in the collection (after the earlier changes of the batch).
+		 */
+		public void add(Card card) {
+			Utilities.require(card != null && card.getBack() != null
+			    && Utilities.isStringValidIdentifier(card.getFront())
+			    && getCardAfterBatch(card.getFront()) == null,
+			    "CardCollection.Batch.add() error: the card is invalid, or its "
+			        + "front is already present.");
+			m_cardsByChangedFront.put(card.getFront(), card);
+			record(card, true);
+			m_addedCards.add(card);
+		}
+
+		/**
+		 * Removes a card from the collection when the batch is applied.
+		 *
+		 * @param card
+		 *          the card to remove; must be in the collection (after the
+		 *          earlier changes of the batch).
+		 */
+		public void remove(Card card) {
+			Utilities.require(card != null
+			    && getCardAfterBatch(card.getFront()) == card,
+			    "CardCollection.Batch.remove() error: "
+			        + "the card cannot be removed, as it is not in the deck!");
+			m_cardsByChangedFront.put(card.getFront(), null);
+			record(card, false);
+			m_removedCards.add(card);
+		}
+
+		/**
+		 * Returns the card with the given front, as the collection will be after
+		 * the changes made to the batch so far have been applied.
+		 *
+		 * @param front
+		 *          the front of the card
+		 * @return the card, or an empty optional if there will be none
+		 */
+		public Optional<Card> getCardWithFront(String front) {
+			return Optional.ofNullable(getCardAfterBatch(front));
+		}
+
+		private Card getCardAfterBatch(String front) {
+			return m_cardsByChangedFront.containsKey(front)
+			    ? m_cardsByChangedFront.get(front) : m_cardsByFront.get(front);
+		}
+
+		private void record(Card card, boolean isAddition) {
+			m_changedCards.add(card);
+			m_isAddition.add(isAddition);
+		}
+	}
+
+	/**
+	 * Makes a number of changes to the collection at once: the given function
+	 * adds cards to and removes cards from the batch, after which all changes
+	 * are applied together and announced with a single update (whose payload, a
+	 * DeckChange, describes what has changed). If the function fails, the
+	 * collection is left unchanged. Use this instead of many calls to addCard or
+	 * removeCard, which each cause every part of Eb that shows the deck to be
+	 * updated.
+	 *
+	 * @param batchOperations
+	 *          adds cards to and removes cards from the batch
+	 */
+	public void edit(Consumer<Batch> batchOperations) {
+		Utilities.require(batchOperations != null, "CardCollection.edit() error: "
+		    + "the batch operations cannot be null.");
+		Batch batch = new Batch();
+		batchOperations.accept(batch);
+		if (batch.m_changedCards.isEmpty()) {
+			return;
+		}
+		final int expectedSize = getSize() + batch.m_addedCards.size()
+		    - batch.m_removedCards.size();
+		m_observers.forEach(CardCollectionObserver::batchStarted);
+		for (int changeIndex = 0; changeIndex < batch.m_changedCards
+		    .size(); changeIndex++) {
+			Card card = batch.m_changedCards.get(changeIndex);
+			if (batch.m_isAddition.get(changeIndex)) {
+				index(card);
+				m_observers.forEach(observer -> observer.cardAdded(card));
+			} else {
+				unindex(card);
+			}
+		}
+		m_observers.forEach(CardCollectionObserver::batchFinished);
+
+		// postconditions: the size should reflect all changes.
+		Utilities.require(getSize() == expectedSize, "CardCollection.edit() "
+		    + "error: something has gone wrong while changing the deck.");
+		BlackBoard.post(Update.withPayload(UpdateType.DECK_CHANGED,
+		    new DeckChange(batch.m_addedCards, batch.m_removedCards)));
+	}
+
+	/**
+	 * Adds a number of cards to the deck at once, for example when importing
+	 * them (see edit()). All cards have to be valid additions (see canAddCard),
+	 * and their fronts have to differ from each other.
+	 *
+	 * @param cards
+	 *          the cards to add to the deck.
+	 */
+	public void addAll(Collection<Card> cards) {
+		Utilities.require(cards != null, "CardCollection.addAll() error: "
+		    + "the collection of cards to be added cannot be null.");
+		edit(batch -> cards.forEach(batch::add));
+	}
+
+	/**
+	 * Removes a number of cards from the deck at once (see edit()). All cards
+	 * have to be in the deck.
+	 *
+	 * @param cards
+	 *          the cards to remove from the deck.
+	 */
+	public void removeAll(Collection<Card> cards) {
+		Utilities.require(cards != null, "CardCollection.removeAll() error: "
+		    + "the collection of cards to be removed cannot be null.");
+		edit(batch -> cards.forEach(batch::remove));
+	}
+
+	/**
+	 * Adds a card that is read from disk. Unlike addCard, does not announce the
+	 * change (the collection is still being built, so there is nobody to
+	 * inform).
+	 *
+	 * @param card
+	 *          the card to add to the collection
+	 */
+	void restoreCard(Card card) { // package-private
+		Utilities.require(canAddCard(card), "CardCollection.restoreCard() error: "
+		    + "the card is invalid, or its front is already present.");
+		index(card);
+		m_observers.forEach(observer -> observer.cardAdded(card));
 	}
 
 	/**
@@ -145,17 +377,85 @@ public class CardCollection implements Serializable {
 		        + "card needs to be a valid identifier, not null or a string with "
 		        + "only whitespace characters.");
 
-		for (final Card card : m_cards) {
-			if (card.getFront().equals(frontText)) {
-				return Optional.of(card); // a card with the same front IS present in
-				                          // the deck.
-			}
-		}
+		return Optional.ofNullable(m_cardsByFront.get(frontText));
+
+		// Postconditions: none, really. Simple return of an optional.
+	}
 
-		// if you get here, no card with the checked-for front has been found
-		return Optional.empty();
+	/**
+	 * Adds the card to the indexes of the collection, and lets the card know it
+	 * belongs to this collection (so it can report changes of its front).
+	 * 
+	 * @param card
+	 *          the card to be indexed
+	 */
+	private void index(Card card) {
+		m_cardsByFront.put(card.getFront(), card);
+		m_cardsInFrontOrder.put(card.getFront(), card);
+		m_reviewingPoints += card.streakSize();
+		card.setCollection(this);
+	}
 
-		// Postconditions: none, really. Simple return of a boolean.
+	/**
+	 * Returns whether the given card, which is part of this collection, can get
+	 * the given new front without making the fronts in the collection
+	 * non-unique.
+	 * 
+	 * @param card
+	 *          the card whose front is to be changed
+	 * @param newFront
+	 *          the proposed new front of the card
+	 * @return whether the card can receive the new front
+	 */
+	boolean canChangeFront(Card card, String newFront) { // package-private
+		Card cardWithNewFront = m_cardsByFront.get(newFront);
+		return cardWithNewFront == null || cardWithNewFront == card;
+	}
+
+	/**
+	 * Updates the indexes after the front of a card in this collection has been
+	 * changed. Called by Card.setFront().
+	 * 
+	 * @param card
+	 *          the card whose front has been changed
+	 * @param oldFront
+	 *          the front the card had before the change
+	 */
+	void frontChanged(Card card, String oldFront) { // package-private
+		Utilities.require(m_cardsByFront.get(oldFront) == card,
+		    "CardCollection.frontChanged() error: the card is not indexed under "
+		        + "its old front.");
+		m_cardsByFront.remove(oldFront);
+		m_cardsInFrontOrder.remove(oldFront);
+		m_cardsByFront.put(card.getFront(), card);
+		m_cardsInFrontOrder.put(card.getFront(), card);
+		m_observers.forEach(observer -> observer.cardChanged(card, oldFront));
+	}
+
+	/**
+	 * Informs the observers of the collection that the back of a card has been
+	 * changed. Called by Card.setBack().
+	 * 
+	 * @param card
+	 *          the card whose back has been changed
+	 */
+	void backChanged(Card card) { // package-private
+		m_observers
+		    .forEach(observer -> observer.cardChanged(card, card.getFront()));
+	}
+
+	/**
+	 * Informs the observers of the collection that a card has been reviewed.
+	 * Called by Card.addReview().
+	 * 
+	 * @param card
+	 *          the card that has been reviewed
+	 * @param previousStreakSize
+	 *          the streak size of the card before the review
+	 */
+	void reviewAdded(Card card, int previousStreakSize) { // package-private
+		m_reviewingPoints += card.streakSize() - previousStreakSize;
+		m_observers.forEach(observer -> observer.reviewAdded(card));
 	}
 
 	/**
@@ -165,13 +465,42 @@ public class CardCollection implements Serializable {
 	 *          the card to be removed from the collection
 	 */
 	public void removeCard(Card card) {
-		boolean collectionContainedCard = m_cards.remove(card);
-		if (collectionContainedCard) {
-			BlackBoard.post(new Update(UpdateType.DECK_CHANGED));
-		} else {
-			Utilities.require(false, "CardCollection.removeCard() error: "
-			    + "the card cannot be removed, as it is not in the deck!");
-		}
+		unindex(card);
+		BlackBoard.post(Update.withPayload(UpdateType.DECK_CHANGED,
+		    new DeckChange(Collections.emptyList(),
+		        Collections.singletonList(card))));
+	}
+
+	/**
+	 * Removes a card while the collection is being read from disk (when the
+	 * journal of the deck is replayed). Unlike removeCard, does not announce
+	 * the change.
+	 * 
+	 * @param card
+	 *          the card to be removed from the collection
+	 */
+	void restoreRemoval(Card card) { // package-private
+		unindex(card);
+	}
+
+	/**
+	 * Removes a card from the indexes of the collection, and informs the
+	 * observers.
+	 * 
+	 * @param card
+	 *          the card to be removed
+	 */
+	private void unindex(Card card) {
+		boolean collectionContainedCard = card != null
+		    && m_cardsByFront.get(card.getFront()) == card;
+		Utilities.require(collectionContainedCard,
+		    "CardCollection.removeCard() error: "
+		        + "the card cannot be removed, as it is not in the deck!");
+		m_cardsByFront.remove(card.getFront());
+		m_cardsInFrontOrder.remove(card.getFront());
+		m_reviewingPoints -= card.streakSize();
+		card.setCollection(null);
+		m_observers.forEach(observer -> observer.cardRemoved(card));
 	}
 
 	/**
@@ -179,26 +508,70 @@ public class CardCollection implements Serializable {
 	 * latest "success streaks" of all cards in the deck. For example a fresh deck
 	 * will have 0 points, a 100 card deck where each card has has 2 successful
 	 * reviews 200 points, failing a review would bring that back to 2x99=198
-	 * points, and so on.
+	 * points, and so on. The total is kept up to date as cards are added,
+	 * removed and reviewed, so this does not need to look at the cards.
 	 * 
 	 * @return the number of reviewing points of this deck.
 	 */
 	public int getReviewingPoints() {
-		int totalPoints = 0;
-		for (Card card : m_cards) {
-			totalPoints += card.streakSize();
-		}
-		return totalPoints;
+		return m_reviewingPoints;
+	}
+
+	/**
+	 * Returns the cards of the collection, in the order of their fronts, as an
+	 * unmodifiable list that offers fast random access and can be split evenly
+	 * (for example by a parallel stream). The list is a snapshot: later changes
+	 * to the collection are not reflected in it.
+	 * 
+	 * @return a list of the cards
+	 */
+	public List<Card> getCardList() {
+		return Collections.unmodifiableList(
+		    Arrays.asList(m_cardsInFrontOrder.values().toArray(new Card[0])));
 	}
 
 	/**
 	 * Returns an iterator to the collection, so for example the Deck can loop
-	 * over the individual cards.
+	 * over the individual cards. The cards are returned in the order of their
+	 * fronts; the iterator does not support removal (use removeCard instead).
 	 * 
 	 * @return an iterator to the cards.
 	 */
 	public Iterator<Card> getIterator() {
-		return m_cards.iterator();
+		return Collections.unmodifiableCollection(m_cardsInFrontOrder.values())
+		    .iterator();
+	}
+
+	/**
+	 * Writes the collection in its (backwards compatible) serialized form: a
+	 * single list of cards.
+	 * 
+	 * @param outStream
+	 *          the stream to write the collection to
+	 */
+	private void writeObject(ObjectOutputStream outStream) throws IOException {
+		ObjectOutputStream.PutField fields = outStream.putFields();
+		fields.put("m_cards", new ArrayList<>(m_cardsInFrontOrder.values()));
+		outStream.writeFields();
+	}
+
+	/**
+	 * Reads the collection from its serialized form, and rebuilds the indexes.
+	 * 
+	 * @param inStream
+	 *          the stream to read the collection from
+	 */
+	@SuppressWarnings("unchecked")
+	private void readObject(ObjectInputStream inStream)
+	    throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = inStream.readFields();
+		List<Card> cards = (List<Card>) fields.get("m_cards", null);
+		initIndexes();
+		if (cards != null) {
+			for (Card card : cards) {
+				index(card);
+			}
+		}
 	}
 
 }
\ No newline at end of file
@@ -0,0 +1,65 @@
+package eb.data;
+
+/**
+ * A CardCollectionObserver is informed of changes to the cards of a
+ * CardCollection, so data structures that are derived from the cards (like
+ * indexes) can be kept up to date without having to re-examine every card.
+ * Unlike the BlackBoard, which informs the GUI of changes in the program state,
+ * observers are specific to a single collection.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+interface CardCollectionObserver {
+
+	/**
+	 * Called after a card has been added to the collection.
+	 * 
+	 * @param card
+	 *          the card that has been added
+	 */
+	void cardAdded(Card card);
+
+	/**
+	 * Called after a card has been removed from the collection.
+	 * 
+	 * @param card
+	 *          the card that has been removed
+	 */
+	void cardRemoved(Card card);
+
+	/**
+	 * Called after the front and/or the back of a card in the collection has
+	 * been changed.
+	 * 
+	 * @param card
+	 *          the card that has been changed
+	 * @param previousFront
+	 *          the front the card had before the change
+	 */
+	void cardChanged(Card card, String previousFront);
+
+	/**
+	 * Called after a review has been added to a card in the collection.
+	 * 
+	 * @param card
+	 *          the card that has been reviewed
+	 */
+	void reviewAdded(Card card);
+
+	/**
+	 * Called before a number of changes is made to the collection at once (see
+	 * CardCollection.edit). The changes are reported one by one as usual,
+	 * followed by a call to batchFinished(), so observers can postpone work
+	 * that only needs to be done once for the whole batch.
+	 */
+	default void batchStarted() {
+		// most observers handle each change right away
+	}
+
+	/**
+	 * Called after all changes of a batch have been reported.
+	 */
+	default void batchFinished() {
+		// most observers handle each change right away
+	}
+}
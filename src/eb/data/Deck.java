@@ -1,25 +1,16 @@
 package eb.data;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
 import java.io.Serializable;
+import java.time.Clock;
 import java.time.Duration;
-import java.time.Instant;
-import java.time.LocalDateTime;
-import java.time.temporal.ChronoField;
-import java.time.temporal.Temporal;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-import java.util.function.Function;
-import java.util.logging.Logger;
+import java.util.Optional;
 
-import eb.Eb;
-import eb.disk_io.CardConverter;
 import eb.subwindow.ArchivingSettings;
 import eb.subwindow.StudyOptions;
+import eb.utilities.LatencyHistogram;
 import eb.utilities.Utilities;
 
 /**
@@ -37,9 +28,6 @@ public class Deck implements Serializable {
 	// The file extension of a deck.
 	private static final String DECKFILE_EXTENSION = ".deck";
 
-	// when writing the deck to a text file.
-	private static final String HEADER_BODY_SEPARATOR = "\t\t";
-
 	// The name of the deck (like "Spanish"). Does not include the ".deck"
 	// extension.
 	private final String m_name;
@@ -55,6 +43,26 @@ public class Deck implements Serializable {
 	// The study options of this deck (interval increase between reviews etc.)
 	private StudyOptions m_studyOptions;
 
+	// The cards of the deck, ordered by the instant at which they are due.
+	// Created when it is first needed (so also after deserialization).
+	private transient DueTimeIndex m_dueTimeIndex;
+
+	// The thinking times of all reviews of the cards of this deck. Created when
+	// they are first needed.
+	private transient ThinkingTimeTracker m_thinkingTimeTracker;
+
+	// The study options as used by the scheduler (intervals in milliseconds).
+	// Created when they are first needed.
+	private transient SchedulingParameters m_schedulingParameters;
+
+	// The scheduler that implements the algorithm chosen in the study options.
+	private transient Scheduler m_scheduler;
+
+	// The clock that tells which cards are due; the system clock, unless
+	// another clock has been set (for example a fixed clock, for simulations
+	// and benchmarks). Null after deserialization, meaning the system clock.
+	private transient Clock m_clock;
+
 	/**
 	 * Constructs a deck with name "name". Note that by defining this constructor,
 	 * it is not needed to define a 'forbidden' default constructor anymore.
@@ -77,54 +85,6 @@ public class Deck implements Serializable {
 		// everything should work
 	}
 
-	/**
-	 * Saves the deck to a text file (helpful for recovery), though it deletes all
-	 * repetition data...
-	 */
-	public void saveDeckToTextfiles() {
-		// Phase 1: get proper filename for deck
-		LocalDateTime now = LocalDateTime.now();
-		String nameOfArchivingDirectory = m_archivingSettings.getDirectoryName();
-		String textFileDirectory = nameOfArchivingDirectory.isEmpty() ? ""
-		    : nameOfArchivingDirectory + File.separator;
-		String twoDigitFormat = "%02d"; // format numbers as 01, 02...99
-
-		String baseFileName = textFileDirectory + getName() + "_"
-		    + String.format(twoDigitFormat, now.get(ChronoField.DAY_OF_MONTH))
-		    + String.format(twoDigitFormat, now.get(ChronoField.MONTH_OF_YEAR))
-		    + String.format(twoDigitFormat, now.get(ChronoField.YEAR) % 100) + "_"
-		    + String.format(twoDigitFormat, now.get(ChronoField.HOUR_OF_DAY))
-		    + String.format(twoDigitFormat, now.get(ChronoField.MINUTE_OF_HOUR));
-
-		String textFileName = baseFileName + ".txt";
-		String reviewFileName = baseFileName + "_reviews.txt";
-
-		createTextFile(textFileName, CardConverter::cardToLine);
-		createTextFile(reviewFileName, CardConverter::reviewHistoryToLine);
-	}
-
-	private void createTextFile(String fileName,
-	    Function<Card, String> outputter) {
-		// Phase 2: write the deck itself
-		try (BufferedWriter outputFile = new BufferedWriter(
-		    new OutputStreamWriter(new FileOutputStream(fileName), "UTF-8"));) {
-			// Phase 2a: write the header.
-			outputFile.write("Eb version " + Eb.VERSION_STRING + Utilities.EOL);
-			outputFile.write(
-			    "Number of cards is: " + m_cardCollection.getSize() + Utilities.EOL);
-			outputFile.write(HEADER_BODY_SEPARATOR + Utilities.EOL);
-
-			// Phase 2b: write the card data
-			m_cardCollection.writeCards(outputFile, outputter);
-
-		} catch (Exception e) {
-			Logger.getGlobal().info(e + "");
-			Utilities.require(false,
-			    "Deck.saveDeckToTextfile() error: cannot save text "
-			        + "copy of deck.");
-		}
-	}
-
 	/**
 	 * Returns the File object representing a deck with name "deckName".
 	 *
@@ -168,6 +128,17 @@ public class Deck implements Serializable {
 		return deckFileHandle;
 	}
 
+	/**
+	 * Returns the handle (File object) to the file in which the changes made to
+	 * this deck since it was last written to disk are recorded (see
+	 * DeckJournal).
+	 *
+	 * @return the handle to the journal file of this deck
+	 */
+	File getJournalFileHandle() { // package-private
+		return new File(m_name + DeckJournal.JOURNAL_EXTENSION);
+	}
+
 	/**
 	 * Returns the study settings of this deck.
 	 *
@@ -187,6 +158,39 @@ public class Deck implements Serializable {
 	 */
 	public void setStudyOptions(StudyOptions studyOptions) {
 		m_studyOptions = studyOptions;
+		m_scheduler = null;
+		// the intervals or the algorithm may have changed, so all due times have
+		// to be recalculated.
+		if (m_dueTimeIndex != null) {
+			ensureSchedulerIsCached();
+			m_dueTimeIndex.rebuild();
+		}
+	}
+
+	/**
+	 * Returns the clock that tells the deck what time it is. Code that creates
+	 * cards or reviews for the deck should use it as well.
+	 * 
+	 * @return the clock of the deck
+	 */
+	public Clock getClock() {
+		if (m_clock == null) {
+			m_clock = Clock.systemDefaultZone();
+		}
+		return m_clock;
+	}
+
+	/**
+	 * Sets the clock that tells the deck what time it is; allows simulations and
+	 * benchmarks to run at a time of their choosing.
+	 * 
+	 * @param clock
+	 *          the new clock of the deck
+	 */
+	public void setClock(Clock clock) {
+		Utilities.require(clock != null,
+		    "Deck.setClock() error: the clock cannot be null.");
+		m_clock = clock;
 	}
 
 	/**
@@ -219,6 +223,17 @@ public class Deck implements Serializable {
 		return m_archivingSettings;
 	}
 
+	/**
+	 * Sets the archiving settings of this deck.
+	 * 
+	 * @param archivingSettings
+	 *          the new archiving settings
+	 */
+	void setArchivingSettings(ArchivingSettings archivingSettings) {
+		// package-private access.
+		m_archivingSettings = archivingSettings;
+	}
+
 	/**
 	 * Returns the collection of cards that this deck possesses.
 	 * 
@@ -237,47 +252,78 @@ public class Deck implements Serializable {
 	 *         negative.
 	 */
 	public Duration getTimeUntilNextReview(Card card) {
-		// case 1: the card has never been reviewed yet. So take the creation
-		// instant and add the user-specified initial interval.
-		if (!card.hasBeenReviewed()) {
-			return Duration.between(Instant.now(), m_studyOptions.getInitialInterval()
-			    .asDuration().addTo(card.getCreationInstant()));
-		} else {
-			// other cases: there have been previous reviews.
-			Review lastReview = card.getLastReview();
-			Instant lastReviewInstant = lastReview.getInstant();
-			Duration waitTime;
-			if (lastReview.wasSuccess()) {
-				waitTime = getIntervalAfterSuccessfulReview(card);
-			} else {
-				waitTime = m_studyOptions.getForgottenCardInterval().asDuration();
-			}
-			Temporal officialReviewTime = waitTime.addTo(lastReviewInstant);
-			return Duration.between(Instant.now(), officialReviewTime);
+		return Duration.ofMillis(getDueTime(card) - getClock().millis());
+	}
+
+	/**
+	 * Returns the instant at which the given card should be reviewed next, in
+	 * milliseconds since the epoch.
+	 * 
+	 * @param card
+	 *          the card of which the due time is requested
+	 * @return the instant (in milliseconds since the epoch) at which the card
+	 *         should be reviewed.
+	 */
+	public long getDueTime(Card card) {
+		ensureSchedulerIsCached();
+		return m_scheduler.getDueTime(card, m_schedulingParameters);
+	}
+
+	/**
+	 * Returns the instants at which the given cards should be reviewed next. For
+	 * large numbers of cards, the due times are calculated in parallel; the
+	 * cards should not be changed while this method runs.
+	 * 
+	 * @param cards
+	 *          the cards of which the due times are requested
+	 * @return the due times of the cards, in milliseconds since the epoch, in
+	 *         the same order as the cards
+	 */
+	public long[] getDueTimes(List<Card> cards) {
+		ensureSchedulerIsCached();
+		return DueTimes.calculate(cards, this::getDueTime);
+	}
+
+	/**
+	 * Looks up the scheduler of the algorithm chosen in the study options, and
+	 * converts the study options to the form the scheduler needs, so that this
+	 * doesn't have to be done for each card again.
+	 */
+	private void ensureSchedulerIsCached() {
+		if (m_scheduler == null) {
+			m_schedulingParameters = new SchedulingParameters(m_studyOptions);
+			m_scheduler = Scheduler
+			    .forAlgorithm(m_studyOptions.getSchedulingAlgorithm());
 		}
 	}
 
 	/**
-	 * Returns the time to wait for the next review (the previous review being a
-	 * success).
+	 * Returns the index that orders the cards of this deck by due time, creating
+	 * it if necessary.
 	 * 
-	 * @return the time to wait for the next review
+	 * @return the due time index of this deck
 	 */
-	private Duration getIntervalAfterSuccessfulReview(Card card) {
-		// the default wait time after a single successful review is given by the
-		// study options
-		Duration waitTime = m_studyOptions.getRememberedCardInterval().asDuration();
-
-		// However, if previous reviews also have been successful, the wait time
-		// should be longer (using exponential growth by default, though may want
-		// to do something more sophisticated in the future).
-		double lengtheningFactor = DeckManager.getLengtheningFactor();
-		int streakLength = card.streakSize();
-		int numberOfLengthenings = streakLength - 1; // 2 reviews = lengthen 1x.
-		for (int lengtheningIndex = 0; lengtheningIndex < numberOfLengthenings; lengtheningIndex++) {
-			waitTime = Utilities.multiplyDurationBy(waitTime, lengtheningFactor);
+	private DueTimeIndex getDueTimeIndex() {
+		if (m_dueTimeIndex == null) {
+			// the index calculates due times in parallel for large decks, so the
+			// scheduler should be ready before the calculation starts
+			ensureSchedulerIsCached();
+			m_dueTimeIndex = new DueTimeIndex(m_cardCollection, this::getDueTime);
 		}
-		return waitTime;
+		return m_dueTimeIndex;
+	}
+
+	/**
+	 * Returns the histogram of the thinking times of all reviews of the cards
+	 * of this deck, in milliseconds. Should not be changed by the caller.
+	 * 
+	 * @return the histogram of the thinking times of this deck
+	 */
+	public LatencyHistogram getThinkingTimes() {
+		if (m_thinkingTimeTracker == null) {
+			m_thinkingTimeTracker = new ThinkingTimeTracker(m_cardCollection);
+		}
+		return m_thinkingTimeTracker.getThinkingTimes();
 	}
 
 	/**
@@ -288,15 +334,61 @@ public class Deck implements Serializable {
 	 *         card collection and study settings.
 	 */
 	public List<Card> getReviewableCardList() {
-		List<Card> reviewableCards = new ArrayList<>();
-		Iterator<Card> cardIterator = m_cardCollection.getIterator();
-		while (cardIterator.hasNext()) {
-			Card currentCard = cardIterator.next();
-			if (getTimeUntilNextReview(currentCard).isNegative()) {
-				reviewableCards.add(currentCard);
-			}
+		return new ArrayList<>(getUpToDateDueTimeIndex().getDueCards());
+	}
+
+	/**
+	 * Returns the number of cards which should be reviewed at the current moment
+	 * and study settings. Unlike getReviewableCardList().size(), does not need to
+	 * build a list.
+	 * 
+	 * @return the number of cards which should be reviewed
+	 */
+	public int getReviewableCardCount() {
+		return getUpToDateDueTimeIndex().getDueCardCount();
+	}
+
+	/**
+	 * Returns whether there are cards which should be reviewed at the current
+	 * moment and study settings.
+	 * 
+	 * @return whether there are cards to be reviewed
+	 */
+	public boolean hasReviewableCards() {
+		return getReviewableCardCount() > 0;
+	}
+
+	/**
+	 * Returns the time until the next card that is not reviewable yet becomes
+	 * reviewable. Unlike getTimeUntilNextReview(), which can return a negative
+	 * time if cards are overdue, this tells when the set of reviewable cards
+	 * will grow.
+	 * 
+	 * @return the time until another card becomes reviewable, or an empty
+	 *         optional if there are no cards that are not reviewable yet.
+	 */
+	public Optional<Duration> getTimeUntilMoreCardsAreReviewable() {
+		long now = getClock().millis();
+		DueTimeIndex dueTimeIndex = getDueTimeIndex();
+		dueTimeIndex.advanceTo(now);
+		long nextDueTime = dueTimeIndex.getNextDueTime();
+		if (nextDueTime == Long.MAX_VALUE) {
+			return Optional.empty();
+		} else {
+			return Optional.of(Duration.ofMillis(nextDueTime - now));
 		}
-		return reviewableCards;
+	}
+
+	/**
+	 * Returns the due time index, after making sure all cards that are due at
+	 * the current moment are registered as such.
+	 * 
+	 * @return the due time index, with its set of due cards up to date
+	 */
+	private DueTimeIndex getUpToDateDueTimeIndex() {
+		DueTimeIndex dueTimeIndex = getDueTimeIndex();
+		dueTimeIndex.advanceTo(getClock().millis());
+		return dueTimeIndex;
 	}
 
 	/**
@@ -308,20 +400,8 @@ public class Deck implements Serializable {
 		Utilities.require(m_cardCollection.getSize() > 0,
 		    "LogicalDeck.getTimeUntilNextReview()) error: the time till next "
 		        + "review is undefined for an empty deck.");
-		Iterator<Card> cardIterator = m_cardCollection.getIterator();
-
-		Card firstCard = cardIterator.next();
-		Duration minimumTimeUntilNextReview = getTimeUntilNextReview(firstCard);
-		while (cardIterator.hasNext()) {
-			Card card = cardIterator.next();
-			Duration timeUntilThisCardIsReviewed = getTimeUntilNextReview(card);
-
-			if (timeUntilThisCardIsReviewed
-			    .compareTo(minimumTimeUntilNextReview) < 0) {
-				minimumTimeUntilNextReview = timeUntilThisCardIsReviewed;
-			}
-		}
-		return minimumTimeUntilNextReview;
+		long earliestDueTime = getDueTimeIndex().getEarliestDueTime();
+		return Duration.ofMillis(earliestDueTime - getClock().millis());
 	}
 
 }
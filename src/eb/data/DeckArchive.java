@@ -0,0 +1,533 @@
+package eb.data;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoField;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import eb.Eb;
+import eb.disk_io.CardConverter;
+import eb.subwindow.ArchivingSettings;
+import eb.utilities.Utilities;
+
+/**
+ * The DeckArchive keeps human-readable copies of a deck in its archiving
+ * directory (helpful for recovery, though they lack most of the repetition
+ * data: the reviews file of a base archive only holds the number of reviews of
+ * each card, and is not read when a deck is restored). Instead of writing a
+ * full copy of the deck each time it is saved, it writes a full copy (a 'base'
+ * archive) only now and then, and in between writes 'delta' archives that only
+ * contain the cards that have changed since the previous archive. The files of
+ * an archive are
+ *
+ * <pre>
+ * base:  [deck]_DDMMYY_HHMM.txt and [deck]_DDMMYY_HHMM_reviews.txt
+ * delta: [base]_delta[n].txt
+ * </pre>
+ *
+ * where [base] is the name of the base archive without extension, and n counts
+ * the deltas of the base, starting at 1. In a delta, a changed card is written
+ * like in a base archive, while a removed card is written as a line consisting
+ * of the separator followed by its front. Reviews do not make a card changed,
+ * so they only show up in the reviews file of the next base archive. How often
+ * a base archive is written, and how many are kept, is determined by the
+ * ArchivingSettings of the deck.
+ * Older versions of Eb wrote full archives under the same names as base
+ * archives; to leave those alone, the header of a base archive has a line that
+ * marks it as such, and only marked base archives get deltas or are deleted.
+ *
+ * @author Eric-Wubbo Lameijer
+ */
+class DeckArchive implements CardCollectionObserver {
+
+	// separates the header of an archive file from the cards, and the front of
+	// a card from its back
+	static final String SEPARATOR = "\t\t";
+
+	private static final String TEXT_EXTENSION = ".txt";
+	private static final String REVIEWS_SUFFIX = "_reviews";
+	private static final String DELTA_MARKER = "_delta";
+
+	// the line in the header of a base archive that marks it as one
+	private static final String BASE_ARCHIVE_MARKER = "Base archive";
+
+	// the date and time in the name of a base archive: DDMMYY_HHMM
+	private static final String TIMESTAMP_REGEX = "_(\\d{2})(\\d{2})(\\d{2})"
+	    + "_(\\d{4})";
+
+	/**
+	 * The files to be written for an archive, and the files of older archives
+	 * that should be deleted afterwards.
+	 */
+	static class ArchiveFiles {
+		final Map<File, String> m_newFiles;
+		final List<File> m_obsoleteFiles;
+
+		ArchiveFiles(Map<File, String> newFiles, List<File> obsoleteFiles) {
+			m_newFiles = Collections.unmodifiableMap(newFiles);
+			m_obsoleteFiles = Collections.unmodifiableList(obsoleteFiles);
+		}
+	}
+
+	/**
+	 * The changes to a deck since its previous archive. Changes are taken from
+	 * the archive when a snapshot of the deck is taken (see DeckSaver), and are
+	 * used to render the next archive from that snapshot.
+	 */
+	static class Changes {
+		private final Set<String> m_changedFronts = new HashSet<>();
+		private final Set<String> m_removedFronts = new HashSet<>();
+
+		// whether the next archive should be a base archive, for example because
+		// the changes since the previous archive are not known
+		private boolean m_needsBaseArchive;
+
+		private boolean hasChangedCards() {
+			return !m_changedFronts.isEmpty() || !m_removedFronts.isEmpty();
+		}
+
+		/**
+		 * Adds the changes of a later (or earlier) period to these changes. A card
+		 * that has been changed in one period and removed in the other is sorted
+		 * out when the archive is rendered, by checking whether the deck still
+		 * contains it.
+		 *
+		 * @param otherChanges
+		 *          the changes to be added
+		 */
+		void addAll(Changes otherChanges) {
+			m_changedFronts.addAll(otherChanges.m_changedFronts);
+			m_removedFronts.addAll(otherChanges.m_removedFronts);
+			m_needsBaseArchive |= otherChanges.m_needsBaseArchive;
+		}
+	}
+
+	// the changes since the changes were last taken; observer callbacks arrive on
+	// the thread that changes the deck, while the archive is rendered on the
+	// thread of the DeckSaver, hence the synchronization.
+	private Changes m_changes = new Changes();
+
+	// the directory that has been searched for the current base archive, the
+	// name of that base archive (without extension; null if there is none),
+	// and the number of deltas it has. Only used while rendering archives.
+	private File m_searchedDirectory;
+	private String m_baseName;
+	private int m_deltaCount;
+
+	/**
+	 * Makes the next archive a base archive.
+	 */
+	synchronized void requestBaseArchive() {
+		m_changes.m_needsBaseArchive = true;
+	}
+
+	@Override
+	public synchronized void cardAdded(Card card) {
+		m_changes.m_changedFronts.add(card.getFront());
+		m_changes.m_removedFronts.remove(card.getFront());
+	}
+
+	@Override
+	public synchronized void cardRemoved(Card card) {
+		m_changes.m_changedFronts.remove(card.getFront());
+		m_changes.m_removedFronts.add(card.getFront());
+	}
+
+	@Override
+	public synchronized void cardChanged(Card card, String previousFront) {
+		if (!previousFront.equals(card.getFront())) {
+			m_changes.m_changedFronts.remove(previousFront);
+			m_changes.m_removedFronts.add(previousFront);
+		}
+		m_changes.m_changedFronts.add(card.getFront());
+		m_changes.m_removedFronts.remove(card.getFront());
+	}
+
+	@Override
+	public void reviewAdded(Card card) {
+		// deltas only contain the fronts and backs of the cards
+	}
+
+	/**
+	 * Returns the changes since the changes were last taken, and starts
+	 * collecting new ones. Should be called when a snapshot of the deck is
+	 * taken, on the thread that changes the deck.
+	 *
+	 * @return the changes since the previous call
+	 */
+	synchronized Changes takeChanges() {
+		Changes changes = m_changes;
+		m_changes = new Changes();
+		return changes;
+	}
+
+	/**
+	 * Adds changes that have been taken, but could not be archived (because
+	 * writing the archive failed), to the changes for the next archive. As the
+	 * files of the current base archive may not have been written, the archiving
+	 * directory is searched again before the next archive is rendered.
+	 *
+	 * @param changes
+	 *          the changes that have not been archived
+	 */
+	synchronized void restoreChanges(Changes changes) {
+		m_changes.addAll(changes);
+		m_searchedDirectory = null;
+	}
+
+	/**
+	 * Renders the next archive of the deck: a base archive if it is time for
+	 * one, otherwise a delta with the given changes (or nothing at all if
+	 * nothing has changed). Writing the files is left to the caller (see
+	 * DeckSaver). Should be called by one thread at a time, which need not be
+	 * the thread that changes the deck.
+	 *
+	 * @param deck
+	 *          the snapshot of the deck to be archived
+	 * @param changes
+	 *          the changes made since the previous archive, up to the snapshot
+	 * @return the files of the archive, and the files of archives that are no
+	 *         longer needed
+	 */
+	ArchiveFiles createArchiveFiles(FrozenDeck deck, Changes changes) {
+		File directory = getDirectory(deck);
+		if (!directory.equals(m_searchedDirectory)) {
+			findCurrentBase(directory, deck.getName());
+		}
+		ArchivingSettings settings = deck.getArchivingSettings();
+		Map<File, String> newFiles = new LinkedHashMap<>();
+		List<File> obsoleteFiles = new ArrayList<>();
+		boolean hasChanges = changes.hasChangedCards();
+		if (changes.m_needsBaseArchive || m_baseName == null || (hasChanges
+		    && m_deltaCount >= settings.getDeltasPerBaseArchive())) {
+			createBase(deck, directory, newFiles, obsoleteFiles);
+		} else if (hasChanges) {
+			createDelta(deck, changes, directory, newFiles);
+		}
+		return new ArchiveFiles(newFiles, obsoleteFiles);
+	}
+
+	private static File getDirectory(FrozenDeck deck) {
+		String directoryName = deck.getArchivingSettings().getDirectoryName();
+		return new File(directoryName.isEmpty() ? "." : directoryName);
+	}
+
+	private void createBase(FrozenDeck deck, File directory,
+	    Map<File, String> newFiles, List<File> obsoleteFiles) {
+		String baseName = deck.getName() + getTimestamp(deck.getClock());
+		if (baseName.equals(m_baseName)) {
+			// a base archive from the same minute is overwritten; its deltas are
+			// no longer valid.
+			obsoleteFiles.addAll(getDeltaFiles(directory, baseName));
+		}
+		List<Card> cards = deck.getCards();
+		newFiles.put(new File(directory, baseName + TEXT_EXTENSION),
+		    createFileContents(cards.size(), true, contents -> writeCards(contents,
+		        cards, CardConverter::cardToLine)));
+		newFiles.put(
+		    new File(directory, baseName + REVIEWS_SUFFIX + TEXT_EXTENSION),
+		    createFileContents(cards.size(), false, contents -> writeCards(
+		        contents, cards, CardConverter::reviewHistoryToLine)));
+		m_baseName = baseName;
+		m_deltaCount = 0;
+
+		int baseArchivesToKeep = deck.getArchivingSettings()
+		    .getBaseArchivesToKeep();
+		if (baseArchivesToKeep > 0) {
+			List<String> baseNames = findBaseNames(directory, deck.getName());
+			baseNames.remove(baseName);
+			// the new base archive counts as one of the archives to keep
+			for (int baseIndex = 0; baseIndex < baseNames.size()
+			    - (baseArchivesToKeep - 1); baseIndex++) {
+				String obsoleteBaseName = baseNames.get(baseIndex);
+				obsoleteFiles.add(new File(directory, obsoleteBaseName
+				    + TEXT_EXTENSION));
+				obsoleteFiles.add(new File(directory, obsoleteBaseName
+				    + REVIEWS_SUFFIX + TEXT_EXTENSION));
+				obsoleteFiles.addAll(getDeltaFiles(directory, obsoleteBaseName));
+			}
+		}
+	}
+
+	private void createDelta(FrozenDeck deck, Changes changes, File directory,
+	    Map<File, String> newFiles) {
+		m_deltaCount++;
+		String deltaName = m_baseName + DELTA_MARKER + m_deltaCount;
+		List<Card> changedCards = getCards(deck, changes.m_changedFronts);
+		// a card that was removed and then added again is in the deck
+		Set<String> removedFronts = new TreeSet<>(changes.m_removedFronts);
+		removedFronts.removeIf(front -> deck.getCardWithFront(front).isPresent());
+		newFiles.put(new File(directory, deltaName + TEXT_EXTENSION),
+		    createFileContents(changedCards.size(), false, contents -> {
+			    writeCards(contents, changedCards, CardConverter::cardToLine);
+			    for (String front : removedFronts) {
+				    contents.write(SEPARATOR + front + Utilities.EOL);
+			    }
+		    }));
+	}
+
+	/**
+	 * Returns the cards of the deck with the given fronts, in the order of their
+	 * fronts; fronts of cards that the deck no longer contains are skipped.
+	 */
+	private static List<Card> getCards(FrozenDeck deck, Set<String> fronts) {
+		List<Card> cards = new ArrayList<>();
+		for (String front : new TreeSet<>(fronts)) {
+			deck.getCardWithFront(front).ifPresent(cards::add);
+		}
+		return cards;
+	}
+
+	private static void writeCards(StringWriter contents, List<Card> cards,
+	    Function<Card, String> outputter) {
+		for (Card card : cards) {
+			CardConverter.writeLine(contents, card, outputter);
+		}
+	}
+
+	/**
+	 * Writes the contents of an archive file: a header (marking the file as a
+	 * base archive if it is the card file of one), followed by the lines written
+	 * by the given function.
+	 */
+	private static String createFileContents(int cardCount,
+	    boolean isBaseArchive, Consumer<StringWriter> cardWriter) {
+		StringWriter contents = new StringWriter();
+		contents.write("Eb version " + Eb.VERSION_STRING + Utilities.EOL);
+		contents.write("Number of cards is: " + cardCount + Utilities.EOL);
+		if (isBaseArchive) {
+			contents.write(BASE_ARCHIVE_MARKER + Utilities.EOL);
+		}
+		contents.write(SEPARATOR + Utilities.EOL);
+		cardWriter.accept(contents);
+		return contents.toString();
+	}
+
+	private static String getTimestamp(Clock clock) {
+		LocalDateTime now = LocalDateTime.now(clock);
+		String twoDigitFormat = "%02d"; // format numbers as 01, 02...99
+		return "_"
+		    + String.format(twoDigitFormat, now.get(ChronoField.DAY_OF_MONTH))
+		    + String.format(twoDigitFormat, now.get(ChronoField.MONTH_OF_YEAR))
+		    + String.format(twoDigitFormat, now.get(ChronoField.YEAR) % 100) + "_"
+		    + String.format(twoDigitFormat, now.get(ChronoField.HOUR_OF_DAY))
+		    + String.format(twoDigitFormat, now.get(ChronoField.MINUTE_OF_HOUR));
+	}
+
+	/**
+	 * Finds the most recent base archive of the deck in the directory, and the
+	 * number of deltas it has.
+	 */
+	private void findCurrentBase(File directory, String deckName) {
+		List<String> baseNames = findBaseNames(directory, deckName);
+		m_searchedDirectory = directory;
+		if (baseNames.isEmpty()) {
+			m_baseName = null;
+			m_deltaCount = 0;
+		} else {
+			m_baseName = baseNames.get(baseNames.size() - 1);
+			m_deltaCount = findDeltaNumbers(directory, m_baseName).size();
+		}
+	}
+
+	/**
+	 * Returns the names (without extension) of the base archives of a deck in
+	 * the directory, oldest first. Full archives written by older versions of
+	 * Eb are not included.
+	 */
+	private static List<String> findBaseNames(File directory, String deckName) {
+		Pattern basePattern = Pattern.compile(Pattern.quote(deckName)
+		    + TIMESTAMP_REGEX + Pattern.quote(TEXT_EXTENSION));
+		Map<String, String> baseNamesByTime = new TreeMap<>();
+		String[] fileNames = directory.list();
+		if (fileNames != null) {
+			for (String fileName : fileNames) {
+				Matcher matcher = basePattern.matcher(fileName);
+				if (matcher.matches()
+				    && isMarkedBaseArchive(new File(directory, fileName))) {
+					// order by year, month, day, hours and minutes
+					String time = matcher.group(3) + matcher.group(2) + matcher.group(1)
+					    + matcher.group(4);
+					baseNamesByTime.put(time, fileName.substring(0,
+					    fileName.length() - TEXT_EXTENSION.length()));
+				}
+			}
+		}
+		return new ArrayList<>(baseNamesByTime.values());
+	}
+
+	/**
+	 * Returns whether the header of the archive file marks it as a base archive.
+	 * Files that cannot be read are not considered base archives, so they are
+	 * never deleted.
+	 */
+	private static boolean isMarkedBaseArchive(File archiveFile) {
+		try (BufferedReader reader = Files.newBufferedReader(archiveFile.toPath(),
+		    StandardCharsets.UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null && !line.equals(SEPARATOR)) {
+				if (line.equals(BASE_ARCHIVE_MARKER)) {
+					return true;
+				}
+			}
+		} catch (IOException e) {
+			Logger.getGlobal().info(e + "");
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the numbers of the deltas of a base archive in the directory, in
+	 * increasing order.
+	 */
+	private static Set<Integer> findDeltaNumbers(File directory,
+	    String baseName) {
+		Pattern deltaPattern = Pattern.compile(
+		    Pattern.quote(baseName + DELTA_MARKER) + "(\\d+)"
+		        + Pattern.quote(TEXT_EXTENSION));
+		Set<Integer> deltaNumbers = new TreeSet<>();
+		String[] fileNames = directory.list();
+		if (fileNames != null) {
+			for (String fileName : fileNames) {
+				Matcher matcher = deltaPattern.matcher(fileName);
+				if (matcher.matches()) {
+					deltaNumbers.add(Integer.valueOf(matcher.group(1)));
+				}
+			}
+		}
+		return deltaNumbers;
+	}
+
+	private static List<File> getDeltaFiles(File directory, String baseName) {
+		List<File> deltaFiles = new ArrayList<>();
+		for (int deltaNumber : findDeltaNumbers(directory, baseName)) {
+			deltaFiles.add(new File(directory,
+			    baseName + DELTA_MARKER + deltaNumber + TEXT_EXTENSION));
+		}
+		return deltaFiles;
+	}
+
+	/**
+	 * Returns the files needed to restore a deck from an archive file: the base
+	 * archive, followed by its deltas in the order they should be applied. If
+	 * the selected file is a base archive, all its deltas are included (so the
+	 * most recent archived state is restored); if it is a delta, the deltas up
+	 * to and including it are. The reviews file of a base archive stands for the
+	 * base archive itself.
+	 *
+	 * @param selectedFile
+	 *          an archive file
+	 * @return the base archive and the deltas to apply to it, or an empty
+	 *         optional if the file is not an archive file
+	 */
+	static Optional<List<File>> getRestorationFiles(File selectedFile) {
+		String name = selectedFile.getName();
+		if (!name.endsWith(TEXT_EXTENSION)) {
+			return Optional.empty();
+		}
+		name = name.substring(0, name.length() - TEXT_EXTENSION.length());
+		if (name.endsWith(REVIEWS_SUFFIX)) {
+			name = name.substring(0, name.length() - REVIEWS_SUFFIX.length());
+		}
+		Matcher matcher = Pattern
+		    .compile("(.+" + TIMESTAMP_REGEX + ")(" + DELTA_MARKER + "(\\d+))?")
+		    .matcher(name);
+		if (!matcher.matches()) {
+			return Optional.empty();
+		}
+		String baseName = matcher.group(1);
+		int lastDelta = matcher.group(7) == null ? Integer.MAX_VALUE
+		    : Integer.parseInt(matcher.group(7));
+		File directory = selectedFile.getAbsoluteFile().getParentFile();
+		List<File> files = new ArrayList<>();
+		files.add(new File(directory, baseName + TEXT_EXTENSION));
+		Iterator<Integer> deltaNumbers = findDeltaNumbers(directory, baseName)
+		    .iterator();
+		while (deltaNumbers.hasNext()) {
+			int deltaNumber = deltaNumbers.next();
+			if (deltaNumber <= lastDelta) {
+				files.add(new File(directory,
+				    baseName + DELTA_MARKER + deltaNumber + TEXT_EXTENSION));
+			}
+		}
+		return Optional.of(files);
+	}
+
+	/**
+	 * Returns the name of the deck that an archive belongs to.
+	 *
+	 * @param baseFile
+	 *          the base archive
+	 * @return the name of the deck
+	 */
+	static String getDeckName(File baseFile) {
+		String name = baseFile.getName();
+		int sizeOfEnd = "_DDMMYY_HHMM.txt".length();
+		return name.substring(0, name.length() - sizeOfEnd);
+	}
+
+	/**
+	 * Applies a delta archive to a collection of cards, as a single batch:
+	 * changed cards are added (replacing the card with the same front, if there
+	 * is one; the cards of a restored deck have no reviews yet, so nothing is
+	 * lost), and removed cards are removed. Lines that are not valid are
+	 * skipped.
+	 *
+	 * @param deltaFile
+	 *          the delta archive
+	 * @param cards
+	 *          the cards to apply the changes to
+	 * @param clock
+	 *          the clock that tells when the added cards are created
+	 * @return a description of each line that has been skipped
+	 */
+	static List<String> applyDelta(File deltaFile, CardCollection cards,
+	    Clock clock) {
+		List<String> errors = new ArrayList<>();
+		cards.edit(batch -> errors.addAll(CardConverter.readArchiveFile(deltaFile,
+		    linesRead -> {
+			    // deltas are small, so progress is not reported
+		    }, line -> applyDeltaLine(line, batch, clock))));
+		errors.replaceAll(error -> deltaFile.getName() + ", " + error);
+		return errors;
+	}
+
+	private static Optional<String> applyDeltaLine(String line,
+	    CardCollection.Batch batch, Clock clock) {
+		if (line.startsWith(SEPARATOR)) {
+			String removedFront = line.substring(SEPARATOR.length());
+			batch.getCardWithFront(removedFront).ifPresent(batch::remove);
+			return Optional.empty();
+		}
+		Optional<Card> changedCard = CardConverter.parseLine(line, clock);
+		if (!changedCard.isPresent()
+		    || !Utilities.isStringValidIdentifier(changedCard.get().getFront())) {
+			return Optional.of("not a valid card");
+		}
+		batch.getCardWithFront(changedCard.get().getFront())
+		    .ifPresent(batch::remove);
+		batch.add(changedCard.get());
+		return Optional.empty();
+	}
+}
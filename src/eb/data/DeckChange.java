@@ -0,0 +1,40 @@
+package eb.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A DeckChange describes which cards have been added to and removed from the
+ * deck; it is the payload of DECK_CHANGED updates, so listeners only need to
+ * look at the cards that have actually changed.
+ *
+ * @author Eric-Wubbo Lameijer
+ */
+public class DeckChange {
+
+	private final List<Card> m_addedCards;
+	private final List<Card> m_removedCards;
+
+	/**
+	 * Creates the description of a change to the deck.
+	 *
+	 * @param addedCards
+	 *          the cards that have been added
+	 * @param removedCards
+	 *          the cards that have been removed
+	 */
+	DeckChange(List<Card> addedCards, List<Card> removedCards) { // package-private
+		m_addedCards = Collections.unmodifiableList(new ArrayList<>(addedCards));
+		m_removedCards = Collections
+		    .unmodifiableList(new ArrayList<>(removedCards));
+	}
+
+	public List<Card> getAddedCards() {
+		return m_addedCards;
+	}
+
+	public List<Card> getRemovedCards() {
+		return m_removedCards;
+	}
+}
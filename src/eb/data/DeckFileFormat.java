@@ -0,0 +1,203 @@
+package eb.data;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import eb.utilities.Utilities;
+
+/**
+ * DeckFileFormat describes Eb's binary deck file format, which replaces the
+ * default Java serialization used by earlier versions. A deck file consists of
+ *
+ * <pre>
+ * header:  magic number "EbDk" (4 bytes), format version (int)
+ * body:    deck name, study options (including the scheduling algorithm
+ *          since version 3), archiving directory and retention
+ *          policy (since version 2),
+ *          string table (all fronts and backs, each distinct text once),
+ *          cards (indexes of front and back in the string table, creation
+ *          instant, and the packed reviews)
+ * trailer: CRC32 checksum of the body (int), length of the body (long)
+ * </pre>
+ *
+ * A review is packed as the (variable-length, zigzag-encoded) difference
+ * between its instant and the instant of the previous review (or the creation
+ * of the card), followed by the thinking time in milliseconds shifted left by
+ * one bit, the lowest bit holding the success of the review. Instants are in
+ * milliseconds since the epoch.
+ *
+ * Older deck files (serialized Deck objects) can be recognized by the magic
+ * number of Java serialization streams, so they can still be read.
+ *
+ * @author Eric-Wubbo Lameijer
+ */
+class DeckFileFormat {
+
+	// the first bytes of each deck file: "EbDk"
+	static final int MAGIC_NUMBER = 0x4562446B;
+
+	// the version of the format written by this version of Eb. Increase it
+	// (and teach DeckReader to read the old version) when the format changes.
+	static final int CURRENT_VERSION = 3;
+
+	// the size of the header: magic number and version
+	static final int HEADER_SIZE = 8;
+
+	// the size of the trailer: checksum and body length
+	static final int TRAILER_SIZE = 12;
+
+	// the first two bytes of a stream written by an ObjectOutputStream, which
+	// is how decks were stored before the binary format was introduced.
+	static final int JAVA_SERIALIZATION_MAGIC = 0xACED;
+
+	/**
+	 * Hide implicit public constructor, as this is a static utility class.
+	 */
+	private DeckFileFormat() {
+		Utilities.require(false, "DeckFileFormat constructor error: "
+		    + "DeckFileFormat is a static utility class and objects of it should "
+		    + "not be created.");
+	}
+
+	/**
+	 * Checks whether a file looks like a deck file, reading only its header and
+	 * trailer (so the check is cheap even for large decks): a deck file in the
+	 * binary format should start with the magic number and a supported version,
+	 * and its length should match the body length stored in the trailer. A
+	 * deck file in the old format is recognized by the magic number of Java
+	 * serialization streams. Whether the body is intact is only known after
+	 * reading it (see DeckReader).
+	 *
+	 * @param deckFile
+	 *          the file to be checked
+	 * @return whether the file looks like a deck file
+	 * @throws IOException
+	 *           if the file cannot be read
+	 */
+	static boolean looksLikeDeckFile(File deckFile) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(deckFile, "r")) {
+			long length = file.length();
+			if (length >= 2 && file.readUnsignedShort() == JAVA_SERIALIZATION_MAGIC) {
+				return true;
+			}
+			if (length < HEADER_SIZE + TRAILER_SIZE) {
+				return false;
+			}
+			file.seek(0);
+			if (file.readInt() != MAGIC_NUMBER) {
+				return false;
+			}
+			int version = file.readInt();
+			if (version < 1 || version > CURRENT_VERSION) {
+				return false;
+			}
+			file.seek(length - Long.BYTES);
+			long bodyLength = file.readLong();
+			return bodyLength == length - HEADER_SIZE - TRAILER_SIZE;
+		}
+	}
+
+	/**
+	 * Returns the checksum stored in the trailer of a deck file in the binary
+	 * format, without reading the body.
+	 *
+	 * @param deckFile
+	 *          the deck file
+	 * @return the checksum of the body of the deck file
+	 * @throws IOException
+	 *           if the file cannot be read or is too short to be a deck file
+	 */
+	static int readChecksum(File deckFile) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(deckFile, "r")) {
+			if (file.length() < HEADER_SIZE + TRAILER_SIZE) {
+				throw new IOException("DeckFileFormat.readChecksum() error: "
+				    + "the file is too short to be a deck file.");
+			}
+			file.seek(file.length() - TRAILER_SIZE);
+			return file.readInt();
+		}
+	}
+
+	/**
+	 * Writes a number using as few bytes as possible: seven bits per byte, the
+	 * highest bit signaling that more bytes follow. The number is treated as
+	 * unsigned, so negative numbers take the maximum of ten bytes (use
+	 * zigzagEncode for numbers that may be negative).
+	 *
+	 * @param output
+	 *          the output to write the number to
+	 * @param number
+	 *          the number to be written
+	 */
+	static void writeVarLong(DataOutput output, long number) throws IOException {
+		long remainder = number;
+		while ((remainder & ~0x7FL) != 0) {
+			output.writeByte((int) ((remainder & 0x7F) | 0x80));
+			remainder >>>= 7;
+		}
+		output.writeByte((int) remainder);
+	}
+
+	/**
+	 * Reads a number written by writeVarLong.
+	 *
+	 * @param input
+	 *          the input to read the number from
+	 * @return the number read
+	 */
+	static long readVarLong(DataInput input) throws IOException {
+		long number = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int currentByte = input.readUnsignedByte();
+			number |= (long) (currentByte & 0x7F) << shift;
+			if ((currentByte & 0x80) == 0) {
+				return number;
+			}
+		}
+		throw new IOException("DeckFileFormat.readVarLong() error: "
+		    + "malformed variable-length number.");
+	}
+
+	/**
+	 * Reads a number written by writeVarLong, which must fit in an int.
+	 *
+	 * @param input
+	 *          the input to read the number from
+	 * @return the number read
+	 */
+	static int readVarInt(DataInput input) throws IOException {
+		long number = readVarLong(input);
+		if (number < 0 || number > Integer.MAX_VALUE) {
+			throw new IOException("DeckFileFormat.readVarInt() error: "
+			    + "number too large: " + number);
+		}
+		return (int) number;
+	}
+
+	/**
+	 * Converts a (possibly negative) number to a non-negative one, small
+	 * negative numbers becoming small positive numbers, so it can be written
+	 * compactly by writeVarLong.
+	 *
+	 * @param number
+	 *          the number to convert
+	 * @return the zigzag encoding of the number
+	 */
+	static long zigzagEncode(long number) {
+		return (number << 1) ^ (number >> 63);
+	}
+
+	/**
+	 * Reverses zigzagEncode.
+	 *
+	 * @param encodedNumber
+	 *          the zigzag encoding of the number
+	 * @return the original number
+	 */
+	static long zigzagDecode(long encodedNumber) {
+		return (encodedNumber >>> 1) ^ -(encodedNumber & 1);
+	}
+}
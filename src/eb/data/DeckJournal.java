@@ -0,0 +1,567 @@
+package eb.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import eb.utilities.Utilities;
+
+/**
+ * The DeckJournal records every change to the cards of a deck (cards added,
+ * changed or removed, and reviews) as a small record appended to a journal
+ * file next to the deck file, so a review does not require rewriting the
+ * entire deck. When a deck is loaded, its journal is replayed on top of the
+ * deck file (the 'snapshot'); when the snapshot is written again, the journal
+ * is emptied ('compaction'), except for the records of changes made after
+ * the snapshot was taken.
+ *
+ * The journal file consists of a header (magic number "EbJl" and the checksum
+ * of the snapshot it belongs to, as stored in the trailer of the deck file),
+ * followed by records of the form
+ *
+ * <pre>
+ * length of the payload (int), payload, CRC32 checksum of the payload (int)
+ * </pre>
+ *
+ * where the payload starts with the type of the record. A record that was only
+ * partially written (for example because the computer crashed) ends the
+ * journal. A journal that does not belong to the snapshot (because Eb crashed
+ * after writing the snapshot but before emptying the journal) is ignored, as
+ * its changes are already in the snapshot.
+ *
+ * Records are collected in a buffer and written and forced to disk together
+ * at most every SYNC_INTERVAL_MS milliseconds, so a burst of changes costs a
+ * single disk synchronization.
+ *
+ * @author Eric-Wubbo Lameijer
+ */
+class DeckJournal implements CardCollectionObserver {
+
+	// the extension of journal files, which are named after their deck
+	static final String JOURNAL_EXTENSION = ".journal";
+
+	// the extension added to a journal file while it is being compacted
+	private static final String PENDING_EXTENSION = ".pending";
+
+	// the first bytes of each journal file: "EbJl"
+	private static final int MAGIC_NUMBER = 0x45624A6C;
+
+	// the size of the header: magic number and snapshot checksum
+	private static final int HEADER_SIZE = 8;
+
+	// the types of records
+	private static final byte CARD_ADDED = 1;
+	private static final byte CARD_REMOVED = 2;
+	private static final byte CARD_CHANGED = 3;
+	private static final byte REVIEW_ADDED = 4;
+
+	// the maximum time that a change may stay in memory before being forced to
+	// disk
+	private static final long SYNC_INTERVAL_MS = 200;
+
+	// the number of records after which the journal asks to be compacted, so
+	// loading the deck does not require replaying an arbitrarily long journal
+	private static final int COMPACTION_THRESHOLD = 10_000;
+
+	// forces the journals to disk in the background
+	private static final ScheduledExecutorService c_syncService = Executors
+	    .newSingleThreadScheduledExecutor(runnable -> {
+		    Thread thread = new Thread(runnable, "Eb journal synchronizer");
+		    thread.setDaemon(true);
+		    return thread;
+	    });
+
+	private final File m_file;
+	private final Runnable m_compactor;
+	private FileOutputStream m_fileStream;
+	private BufferedOutputStream m_bufferedStream;
+	private final ByteArrayOutputStream m_payloadBytes = new ByteArrayOutputStream();
+	private final DataOutputStream m_payload = new DataOutputStream(
+	    m_payloadBytes);
+	private final CRC32 m_checksum = new CRC32();
+	private boolean m_compactionRequested;
+
+	// whether a batch of changes is being recorded; compaction is postponed
+	// until the batch is finished, so a large batch does not cause repeated
+	// compactions
+	private boolean m_isInBatch;
+	private ScheduledFuture<?> m_pendingSync;
+
+	// The number of records (and bytes of records) appended since the journal
+	// was created, and the number of those that have been discarded because
+	// they are in the deck file. Positions in the journal are counted from its
+	// creation, so they stay valid when the start of the journal is discarded.
+	private long m_appendedRecords;
+	private long m_appendedBytes;
+	private long m_discardedRecords;
+	private long m_discardedBytes;
+
+	/**
+	 * A position in the journal: the records before it are contained in a
+	 * snapshot of the deck that is about to be written, and can be discarded
+	 * when that has happened.
+	 */
+	static class Mark {
+		private final long m_records;
+		private final long m_bytes;
+
+		private Mark(long records, long bytes) {
+			m_records = records;
+			m_bytes = bytes;
+		}
+	}
+
+	/**
+	 * Writes the deck file while the journal is being compacted (see compact).
+	 */
+	interface SnapshotCommitter {
+		void commit() throws IOException;
+	}
+
+	/**
+	 * Creates a new, empty journal belonging to the given snapshot, replacing
+	 * any existing journal file.
+	 *
+	 * @param journalFile
+	 *          the file to store the journal in
+	 * @param snapshotChecksum
+	 *          the checksum of the deck file the journal belongs to
+	 * @param compactor
+	 *          called when the journal has grown so large that it should be
+	 *          folded into the deck file; should eventually call compact()
+	 */
+	DeckJournal(File journalFile, int snapshotChecksum, Runnable compactor)
+	    throws IOException {
+		Utilities.require(journalFile != null && compactor != null,
+		    "DeckJournal constructor error: the journal file and the compactor "
+		        + "should not be null.");
+		m_file = journalFile;
+		m_compactor = compactor;
+		m_fileStream = new FileOutputStream(m_file);
+		m_bufferedStream = new BufferedOutputStream(m_fileStream);
+		writeHeader(m_bufferedStream, snapshotChecksum);
+		m_bufferedStream.flush();
+		m_fileStream.getFD().sync();
+	}
+
+	/**
+	 * Applies the changes recorded in a journal file to the deck that has been
+	 * read from the snapshot, provided the journal belongs to that snapshot. If
+	 * Eb stopped while compacting the journal, the compacted journal may still
+	 * be in the pending file; it is used if it belongs to the snapshot.
+	 *
+	 * @param journalFile
+	 *          the journal file
+	 * @param snapshotChecksum
+	 *          the checksum of the deck file the deck has been read from
+	 * @param deck
+	 *          the deck read from the deck file
+	 * @return the number of records that have been replayed
+	 */
+	static int replay(File journalFile, int snapshotChecksum, Deck deck)
+	    throws IOException {
+		if (belongsToSnapshot(journalFile, snapshotChecksum)) {
+			return replayFile(journalFile, deck);
+		}
+		File pendingFile = getPendingFile(journalFile);
+		if (belongsToSnapshot(pendingFile, snapshotChecksum)) {
+			return replayFile(pendingFile, deck);
+		}
+		if (journalFile.exists()) {
+			Logger.getGlobal().info("DeckJournal.replay(): the journal "
+			    + journalFile + " does not belong to the deck file; ignoring it.");
+		}
+		return 0;
+	}
+
+	private static File getPendingFile(File journalFile) {
+		return new File(journalFile.getPath() + PENDING_EXTENSION);
+	}
+
+	private static boolean belongsToSnapshot(File journalFile,
+	    int snapshotChecksum) throws IOException {
+		if (!journalFile.isFile()) {
+			return false;
+		}
+		try (DataInputStream input = new DataInputStream(
+		    new FileInputStream(journalFile))) {
+			return input.readInt() == MAGIC_NUMBER
+			    && input.readInt() == snapshotChecksum;
+		} catch (EOFException e) {
+			return false;
+		}
+	}
+
+	private static int replayFile(File journalFile, Deck deck)
+	    throws IOException {
+		int replayedRecords = 0;
+		try (DataInputStream input = new DataInputStream(
+		    new BufferedInputStream(new FileInputStream(journalFile)))) {
+			input.skipBytes(HEADER_SIZE);
+			CRC32 checksum = new CRC32();
+			while (true) {
+				int length = input.readInt();
+				if (length <= 0) {
+					break;
+				}
+				byte[] payload = new byte[length];
+				input.readFully(payload);
+				checksum.reset();
+				checksum.update(payload, 0, length);
+				if (input.readInt() != (int) checksum.getValue()) {
+					break;
+				}
+				applyRecord(new DataInputStream(new ByteArrayInputStream(payload)),
+				    deck.getCards());
+				replayedRecords++;
+			}
+		} catch (EOFException e) {
+			// a partially written record (or header) marks the end of the journal
+		}
+		return replayedRecords;
+	}
+
+	private static void applyRecord(DataInputStream record,
+	    CardCollection cards) throws IOException {
+		byte type = record.readByte();
+		String front = record.readUTF();
+		if (type == CARD_ADDED) {
+			String back = record.readUTF();
+			Instant creationInstant = Instant.ofEpochMilli(record.readLong());
+			Card card = new Card(front, back, creationInstant,
+			    Collections.emptyList());
+			if (cards.canAddCard(card)) {
+				cards.restoreCard(card);
+				return;
+			}
+		} else if (Utilities.isStringValidIdentifier(front)) {
+			Card card = cards.getCardWithFront(front).orElse(null);
+			if (card != null) {
+				if (type == CARD_REMOVED) {
+					cards.restoreRemoval(card);
+					return;
+				} else if (type == CARD_CHANGED) {
+					String newFront = record.readUTF();
+					String newBack = record.readUTF();
+					if (cards.canChangeFront(card, newFront)) {
+						card.setFront(newFront);
+						card.setBack(newBack);
+						return;
+					}
+				} else if (type == REVIEW_ADDED) {
+					long instant = record.readLong();
+					int thinkingTime = record.readInt();
+					boolean wasSuccess = record.readBoolean();
+					card.addReview(new Review(instant, thinkingTime, wasSuccess));
+					return;
+				}
+			}
+		}
+		Logger.getGlobal().info("DeckJournal.applyRecord(): cannot apply record "
+		    + "of type " + type + " for card '" + front + "'; skipping it.");
+	}
+
+	@Override
+	public void cardAdded(Card card) {
+		try {
+			m_payload.writeByte(CARD_ADDED);
+			m_payload.writeUTF(card.getFront());
+			m_payload.writeUTF(card.getBack());
+			m_payload.writeLong(card.getCreationInstant().toEpochMilli());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		appendRecord();
+	}
+
+	@Override
+	public void cardRemoved(Card card) {
+		try {
+			m_payload.writeByte(CARD_REMOVED);
+			m_payload.writeUTF(card.getFront());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		appendRecord();
+	}
+
+	@Override
+	public void cardChanged(Card card, String previousFront) {
+		try {
+			m_payload.writeByte(CARD_CHANGED);
+			m_payload.writeUTF(previousFront);
+			m_payload.writeUTF(card.getFront());
+			m_payload.writeUTF(card.getBack());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		appendRecord();
+	}
+
+	@Override
+	public void reviewAdded(Card card) {
+		int lastReviewIndex = card.getReviewCount() - 1;
+		try {
+			m_payload.writeByte(REVIEW_ADDED);
+			m_payload.writeUTF(card.getFront());
+			m_payload.writeLong(card.getReviewInstant(lastReviewIndex));
+			m_payload.writeInt(card.getReviewThinkingTime(lastReviewIndex));
+			m_payload.writeBoolean(card.wasReviewSuccess(lastReviewIndex));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		appendRecord();
+	}
+
+	/**
+	 * Appends the record in m_payload to the journal, and schedules a
+	 * synchronization if none is pending.
+	 */
+	private void appendRecord() {
+		boolean shouldCompact;
+		synchronized (this) {
+			try {
+				if (m_bufferedStream == null) {
+					throw new IOException("the journal has been closed.");
+				}
+				DataOutputStream output = new DataOutputStream(m_bufferedStream);
+				m_checksum.reset();
+				m_checksum.update(m_payloadBytes.toByteArray(), 0,
+				    m_payloadBytes.size());
+				output.writeInt(m_payloadBytes.size());
+				m_payloadBytes.writeTo(output);
+				output.writeInt((int) m_checksum.getValue());
+				output.flush(); // into m_bufferedStream only
+				m_appendedRecords++;
+				m_appendedBytes += output.size();
+			} catch (IOException e) {
+				Logger.getGlobal().severe("DeckJournal.appendRecord() error: "
+				    + "cannot write to " + m_file + ": " + e.getMessage());
+			} finally {
+				m_payloadBytes.reset();
+			}
+			scheduleSync();
+			shouldCompact = !m_isInBatch && claimCompaction();
+		}
+		if (shouldCompact) {
+			m_compactor.run();
+		}
+	}
+
+	/**
+	 * Schedules a synchronization, if none is pending.
+	 */
+	private synchronized void scheduleSync() {
+		if (m_pendingSync == null) {
+			m_pendingSync = c_syncService.schedule(this::sync, SYNC_INTERVAL_MS,
+			    TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Returns whether the journal has grown large enough to be compacted, and
+	 * if so, makes sure compaction is only requested once.
+	 */
+	private synchronized boolean claimCompaction() {
+		long recordCount = m_appendedRecords - m_discardedRecords;
+		boolean shouldCompact = recordCount >= COMPACTION_THRESHOLD
+		    && !m_compactionRequested;
+		if (shouldCompact) {
+			m_compactionRequested = true;
+		}
+		return shouldCompact;
+	}
+
+	@Override
+	public synchronized void batchStarted() {
+		m_isInBatch = true;
+	}
+
+	@Override
+	public void batchFinished() {
+		boolean shouldCompact;
+		synchronized (this) {
+			m_isInBatch = false;
+			shouldCompact = claimCompaction();
+		}
+		if (shouldCompact) {
+			m_compactor.run();
+		}
+	}
+
+	/**
+	 * Writes all buffered records to the journal file and forces them to disk.
+	 */
+	synchronized void sync() {
+		m_pendingSync = null;
+		if (m_bufferedStream == null) {
+			return;
+		}
+		try {
+			m_bufferedStream.flush();
+			m_fileStream.getFD().sync();
+		} catch (IOException e) {
+			Logger.getGlobal().severe("DeckJournal.sync() error: cannot write to "
+			    + m_file + ": " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Returns the current end of the journal. Take a mark when taking a
+	 * snapshot of the deck, and pass it to compact() once the snapshot is to be
+	 * written to disk.
+	 *
+	 * @return the current end of the journal
+	 */
+	synchronized Mark mark() {
+		return new Mark(m_appendedRecords, m_appendedBytes);
+	}
+
+	/**
+	 * Discards the records before the mark, which are contained in a new
+	 * snapshot of the deck, and lets the committer write that snapshot. The
+	 * remaining records are first written to a pending journal that belongs to
+	 * the new snapshot, so that whenever Eb stops, the deck file on disk has a
+	 * journal containing the changes made after it was taken. The journal is
+	 * only locked to note where it ends and to swap in the pending journal, so
+	 * records can be appended while the files are being written: they go to the
+	 * old journal file, and are copied to the pending journal just before it
+	 * replaces the old one. Should be called by one thread at a time.
+	 *
+	 * @param mark
+	 *          the end of the journal at the moment the snapshot was taken
+	 * @param snapshotChecksum
+	 *          the checksum of the new snapshot
+	 * @param committer
+	 *          writes the new snapshot to the deck file
+	 */
+	void compact(Mark mark, int snapshotChecksum, SnapshotCommitter committer)
+	    throws IOException {
+		long discardedBytes;
+		long compactedBytes;
+		synchronized (this) {
+			Utilities.require(mark != null && mark.m_bytes >= m_discardedBytes,
+			    "DeckJournal.compact() error: the mark has already been discarded.");
+			if (m_bufferedStream != null) {
+				m_bufferedStream.flush();
+			}
+			discardedBytes = m_discardedBytes;
+			compactedBytes = m_appendedBytes;
+		}
+
+		// only compact() discards records, and records are only appended, so the
+		// part of the journal file up to compactedBytes does not change anymore
+		File pendingFile = getPendingFile(m_file);
+		try (FileOutputStream pendingStream = new FileOutputStream(pendingFile)) {
+			writeHeader(pendingStream, snapshotChecksum);
+			copyRecords(mark.m_bytes - discardedBytes,
+			    compactedBytes - mark.m_bytes, pendingStream);
+			pendingStream.getFD().sync();
+		}
+
+		committer.commit();
+
+		synchronized (this) {
+			boolean isOpen = m_bufferedStream != null;
+			if (isOpen) {
+				m_bufferedStream.flush();
+			}
+			// the records appended in the meantime; they are forced to disk by the
+			// next synchronization, like any other new record
+			long appendedBytes = m_appendedBytes - compactedBytes;
+			if (appendedBytes > 0) {
+				try (FileOutputStream pendingStream = new FileOutputStream(
+				    pendingFile, true)) {
+					copyRecords(compactedBytes - discardedBytes, appendedBytes,
+					    pendingStream);
+				}
+			}
+			closeFile();
+			Files.move(pendingFile.toPath(), m_file.toPath(),
+			    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			m_discardedRecords = mark.m_records;
+			m_discardedBytes = mark.m_bytes;
+			m_compactionRequested = false;
+			if (isOpen) {
+				m_fileStream = new FileOutputStream(m_file, true);
+				m_bufferedStream = new BufferedOutputStream(m_fileStream);
+				if (appendedBytes > 0) {
+					scheduleSync();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies records from the journal file to the given stream.
+	 *
+	 * @param offset
+	 *          the position of the first record, counted from the end of the
+	 *          header
+	 * @param length
+	 *          the number of bytes to copy
+	 */
+	private void copyRecords(long offset, long length, OutputStream output)
+	    throws IOException {
+		byte[] records = new byte[(int) length];
+		try (RandomAccessFile journal = new RandomAccessFile(m_file, "r")) {
+			journal.seek(HEADER_SIZE + offset);
+			journal.readFully(records);
+		}
+		output.write(records);
+	}
+
+	/**
+	 * Writes the buffered records to disk and closes the journal file. No
+	 * further records can be appended afterwards.
+	 */
+	synchronized void close() {
+		sync();
+		try {
+			closeFile();
+		} catch (IOException e) {
+			Logger.getGlobal().severe("DeckJournal.close() error: cannot close "
+			    + m_file + ": " + e.getMessage());
+		}
+	}
+
+	private static void writeHeader(OutputStream outputStream,
+	    int snapshotChecksum) throws IOException {
+		DataOutputStream header = new DataOutputStream(outputStream);
+		header.writeInt(MAGIC_NUMBER);
+		header.writeInt(snapshotChecksum);
+		header.flush();
+	}
+
+	private void closeFile() throws IOException {
+		if (m_pendingSync != null) {
+			m_pendingSync.cancel(false);
+			m_pendingSync = null;
+		}
+		if (m_bufferedStream != null) {
+			m_bufferedStream.close();
+			m_bufferedStream = null;
+			m_fileStream = null;
+		}
+	}
+}
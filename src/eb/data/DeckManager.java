@@ -1,11 +1,17 @@
 package eb.data;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.time.Duration;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
 import java.util.logging.Logger;
 
 import eb.disk_io.CardConverter;
@@ -27,6 +33,15 @@ public class DeckManager {
 	// The deck managed by the DeckManager.
 	private static Deck m_deck;
 
+	// Records the changes to the deck since it was last written to disk.
+	private static DeckJournal c_journal;
+
+	// Keeps the human-readable archives of the deck.
+	private static DeckArchive c_archive;
+
+	// Writes the decks to disk in the background.
+	private static final DeckSaver c_saver = new DeckSaver();
+
 	// the name of the deck that has been reviewed previously
 	// TODO: basically, is only important when starting up Eb; why does this need
 	// to be a field?
@@ -35,6 +50,11 @@ public class DeckManager {
 	// The name of the default deck
 	private static final String DEFAULT_DECKNAME = "default";
 
+	// The extension given to the copy of a deck file in the old format (Java
+	// serialization) that is kept when the deck is converted to the binary
+	// format.
+	private static final String OLD_FORMAT_BACKUP_EXTENSION = ".old";
+
 	/**
 	 * Private constructor: should not be called as DeckManager is basically a
 	 * static utility class, a wrapper around the Deck itself.
@@ -71,9 +91,8 @@ public class DeckManager {
 		if (!deckHasBeenLoaded()) {
 			// No deck has been loaded yet - try to load the default deck,
 			// or else create it.
-			if (canLoadDeck(getNameOfLastDeck())) {
-				loadDeck(getNameOfLastDeck());
-			} else {
+			if (!canLoadDeck(getNameOfLastDeck())
+			    || !loadDeck(getNameOfLastDeck())) {
 				// If loading the deck failed, try to create it.
 				// Note that createDeckWithName cannot return null; it will exit
 				// with an error message instead.
@@ -103,14 +122,15 @@ public class DeckManager {
 	}
 
 	/**
-	 * Loads a deck from file.
+	 * Loads a deck from file. The deck file is read only once; if it turns out
+	 * to be damaged, the current deck stays loaded.
 	 *
 	 * @param name
 	 *          the name of the deck.
 	 * @return a boolean indicating whether the requested deck was successfully
 	 *         loaded
 	 */
-	public static void loadDeck(String name) {
+	public static boolean loadDeck(String name) {
 
 		// checking preconditions
 		Utilities.require(canLoadDeck(name),
@@ -118,30 +138,53 @@ public class DeckManager {
 		        + "Was canLoadDeck called?");
 
 		save();
+		if (m_deck != null && m_deck.getName().equals(name)) {
+			// reloading the current deck: it should be read as it has just been saved
+			flush();
+		}
 		final File deckFile = Deck.getDeckFileHandle(name);
-		try (ObjectInputStream objInStream = new ObjectInputStream(
-		    new FileInputStream(deckFile))) {
-			Deck loadedDeck = (Deck) objInStream.readObject();
-			if (loadedDeck != null) {
-				m_deck = loadedDeck;
-				m_deck.fixNewFields();
-				BlackBoard.post(new Update(UpdateType.DECK_SWAPPED));
-			} else {
-				Utilities.require(false,
-				    "Deck.loadDeck() error: the requested deck " + "cannot be loaded.");
+		try {
+			Deck loadedDeck = readDeck(deckFile);
+			loadedDeck.fixNewFields();
+			int snapshotChecksum = DeckFileFormat.readChecksum(deckFile);
+			int replayedRecords = DeckJournal.replay(
+			    loadedDeck.getJournalFileHandle(), snapshotChecksum, loadedDeck);
+			if (replayedRecords > 0) {
+				// fold the journal into the deck file
+				Logger.getGlobal().info("Replayed " + replayedRecords
+				    + " changes from the journal of deck " + name);
+				snapshotChecksum = writeDeck(loadedDeck, deckFile);
 			}
+			// only give up the current deck once the changes to the loaded deck
+			// can be journaled
+			Deck previousDeck = m_deck;
+			closeJournal();
+			closeArchive();
+			try {
+				openJournal(loadedDeck, snapshotChecksum);
+			} catch (final IOException e) {
+				reopenJournal(previousDeck);
+				throw e;
+			}
+			m_deck = loadedDeck;
+			// changes replayed from the journal are not in the archive yet
+			openArchive(replayedRecords > 0);
+			BlackBoard.post(Update.withPayload(UpdateType.DECK_SWAPPED, m_deck));
+			return true;
 		} catch (final Exception e) {
 			// something goes wrong with deserializing the deck; so
 			// you also can't read the file
 			Logger.getGlobal()
 			    .info(e + "Deck.loadDeck() error: could not load deck from file");
+			return false;
 		}
 		// postconditions: none
 	}
 
 	/**
 	 * Returns whether a deck with this name can be loaded (it exists and is of
-	 * the proper file format)
+	 * the proper file format). Only checks the header and trailer of the deck
+	 * file, so a damaged body is only detected by loadDeck.
 	 * 
 	 * @param deckName
 	 *          the name of the deck can be loaded.
@@ -161,11 +204,9 @@ public class DeckManager {
 		}
 
 		// so the file must exist. But does it contain a valid deck?
-		try (ObjectInputStream objInStream = new ObjectInputStream(
-		    new FileInputStream(deckFile))) {
-			Deck loadedDeck = (Deck) objInStream.readObject();
-			return loadedDeck != null;
-		} catch (final Exception e) {
+		try {
+			return DeckFileFormat.looksLikeDeckFile(deckFile);
+		} catch (final IOException e) {
 			// something goes wrong with deserializing the deck; so
 			// you also can't read the file
 			Logger.getGlobal()
@@ -175,6 +216,182 @@ public class DeckManager {
 		// postconditions: none
 	}
 
+	/**
+	 * Reads a deck from a file. Decks stored in the binary deck format are read
+	 * by the DeckReader; decks stored by older versions of Eb (as serialized Java
+	 * objects) are read using Java serialization, and converted to the binary
+	 * format right away (keeping a copy of the old file).
+	 * 
+	 * @param deckFile
+	 *          the file that contains the deck
+	 * @return the deck stored in the file
+	 * @throws IOException
+	 *           if the file cannot be read or does not contain a valid deck
+	 */
+	private static Deck readDeck(File deckFile)
+	    throws IOException, ClassNotFoundException {
+		try (InputStream inStream = new BufferedInputStream(
+		    new FileInputStream(deckFile))) {
+			if (isInOldFormat(inStream)) {
+				Deck oldDeck = readOldDeck(deckFile);
+				convertOldDeckFile(oldDeck, deckFile);
+				return oldDeck;
+			} else {
+				return DeckReader.read(inStream);
+			}
+		}
+	}
+
+	/**
+	 * Returns whether the stream contains a deck in the old (Java serialization)
+	 * format. Leaves the stream at the position where it started.
+	 */
+	private static boolean isInOldFormat(InputStream inStream)
+	    throws IOException {
+		inStream.mark(2);
+		int firstByte = inStream.read();
+		int secondByte = inStream.read();
+		inStream.reset();
+		int magicNumber = (firstByte << 8) | secondByte;
+		return magicNumber == DeckFileFormat.JAVA_SERIALIZATION_MAGIC;
+	}
+
+	/**
+	 * Reads a deck that was stored using Java serialization.
+	 */
+	private static Deck readOldDeck(File deckFile)
+	    throws IOException, ClassNotFoundException {
+		Deck loadedDeck;
+		try (ObjectInputStream objInStream = new ObjectInputStream(
+		    new FileInputStream(deckFile))) {
+			loadedDeck = (Deck) objInStream.readObject();
+		}
+		if (loadedDeck == null) {
+			throw new IOException("DeckManager.readAndConvertOldDeck() error: "
+			    + "the file does not contain a deck.");
+		}
+		loadedDeck.fixNewFields();
+		return loadedDeck;
+	}
+
+	/**
+	 * Converts a deck file in the old format to the binary format. The original
+	 * file is kept (with the extension ".old" added) in case anything goes
+	 * wrong.
+	 */
+	private static void convertOldDeckFile(Deck deck, File deckFile)
+	    throws IOException {
+		File backupFile = new File(
+		    deckFile.getPath() + OLD_FORMAT_BACKUP_EXTENSION);
+		Files.copy(deckFile.toPath(), backupFile.toPath(),
+		    StandardCopyOption.REPLACE_EXISTING);
+		writeDeck(deck, deckFile);
+		Logger.getGlobal().info("Converted deck file " + deckFile
+		    + " to the binary deck format; the original is kept as " + backupFile);
+	}
+
+	/**
+	 * Writes a deck to a file right away, in the binary deck format, and forces
+	 * it to disk (so the journal can safely be emptied afterwards). Use save()
+	 * to write the current deck in the background.
+	 * 
+	 * @param deck
+	 *          the deck to write
+	 * @param deckFile
+	 *          the file to write the deck to
+	 * @return the checksum of the deck file (see DeckJournal)
+	 */
+	private static int writeDeck(Deck deck, File deckFile) throws IOException {
+		ByteArrayOutputStream deckBytes = new ByteArrayOutputStream();
+		int checksum = DeckWriter.write(deck, deckBytes);
+		DeckSaver.writeAtomically(deckFile, deckBytes.toByteArray());
+		return checksum;
+	}
+
+	/**
+	 * Starts recording the changes to a deck, which is or is about to become
+	 * the current deck, in its journal.
+	 * 
+	 * @param deck
+	 *          the deck whose changes should be recorded
+	 * @param snapshotChecksum
+	 *          the checksum of the deck file the journal belongs to
+	 */
+	private static void openJournal(Deck deck, int snapshotChecksum)
+	    throws IOException {
+		c_journal = new DeckJournal(deck.getJournalFileHandle(), snapshotChecksum,
+		    DeckManager::compactJournal);
+		deck.getCards().addObserver(c_journal);
+	}
+
+	/**
+	 * Resumes recording the changes to the current deck after its journal has
+	 * been closed, for example because another deck could not be loaded. The
+	 * deck is written to disk first, so the new journal can start empty.
+	 * 
+	 * @param deck
+	 *          the current deck (can be null if there is none)
+	 */
+	private static void reopenJournal(Deck deck) {
+		if (deck == null) {
+			return;
+		}
+		flush();
+		try {
+			openJournal(deck, DeckFileFormat.readChecksum(deck.getFileHandle()));
+			openArchive(false);
+		} catch (final IOException e) {
+			Logger.getGlobal().severe("DeckManager.reopenJournal() error: the "
+			    + "changes to deck " + deck.getName() + " cannot be journaled: " + e);
+		}
+	}
+
+	/**
+	 * Stops recording the changes to the current deck (if they were recorded).
+	 */
+	private static void closeJournal() {
+		if (c_journal != null) {
+			m_deck.getCards().removeObserver(c_journal);
+			c_journal.close();
+			c_journal = null;
+		}
+	}
+
+	/**
+	 * Starts keeping track of the changes to the current deck, so that its next
+	 * archive only needs to contain the cards that have changed.
+	 * 
+	 * @param needsBaseArchive
+	 *          whether the next archive should contain all cards, because the
+	 *          deck has changed since it was last archived
+	 */
+	private static void openArchive(boolean needsBaseArchive) {
+		c_archive = new DeckArchive();
+		if (needsBaseArchive) {
+			c_archive.requestBaseArchive();
+		}
+		m_deck.getCards().addObserver(c_archive);
+	}
+
+	/**
+	 * Stops keeping track of the changes to the current deck.
+	 */
+	private static void closeArchive() {
+		if (c_archive != null) {
+			m_deck.getCards().removeObserver(c_archive);
+			c_archive = null;
+		}
+	}
+
+	/**
+	 * Writes the current deck to disk and empties its journal, so loading the
+	 * deck does not require replaying a long journal. Unlike save(), does not
+	 * archive the deck.
+	 */
+	private static void compactJournal() {
+		c_saver.save(new DeckSaver.Snapshot(m_deck, c_journal, null));
+	}
+
 	/**
 	 * Creates a deck with name "name".
 	 *
@@ -190,8 +407,24 @@ public class DeckManager {
 
 		// Save the current deck to disk before creating the new deck
 		save();
+		if (m_deck != null && m_deck.getName().equals(name)) {
+			flush();
+		}
 
+		closeJournal();
+		closeArchive();
 		m_deck = new Deck(name);
+		try {
+			// write the (empty) deck right away, so the journal has a deck file to
+			// be replayed on.
+			openJournal(m_deck, writeDeck(m_deck, m_deck.getFileHandle()));
+			// archives of an earlier deck with the same name do not apply
+			openArchive(true);
+		} catch (final IOException e) {
+			Logger.getGlobal().info(e + "");
+			Utilities.require(false,
+			    "Deck.createDeckWithName() error: cannot write the new deck to disk.");
+		}
 
 		// postconditions: the deck should exist (deck.save handles any errors
 		// occurring during saving the deck).
@@ -209,11 +442,12 @@ public class DeckManager {
 	 */
 	private static void reportDeckSwapEvent() {
 		// A new review session is needed.
-		BlackBoard.post(new Update(UpdateType.DECK_SWAPPED));
+		BlackBoard.post(Update.withPayload(UpdateType.DECK_SWAPPED, m_deck));
 	}
 
 	/**
-	 * Saves the deck to disk.
+	 * Saves the deck to disk. The deck is written in the background; call
+	 * flush() to wait until it has been written.
 	 */
 	public static void save() {
 		// Preconditions: none (well, if the deck does not exist, you don't have to
@@ -225,20 +459,24 @@ public class DeckManager {
 			return;
 		}
 		ensureDeckExists();
-		try (ObjectOutputStream objOutStream = new ObjectOutputStream(
-		    new FileOutputStream(m_deck.getFileHandle()))) {
-			objOutStream.writeObject(m_deck);
-			m_deck.saveDeckToTextfiles();
-		} catch (final Exception e) {
-			// Something goes wrong with serializing the deck; so
-			// you cannot create the file.
-			Logger.getGlobal().info(e + "");
-			Utilities.require(false,
-			    "Deck.save() error: cannot write the new deck to disk.");
-		}
+		c_saver.save(new DeckSaver.Snapshot(m_deck, c_journal, c_archive));
 
-		// postconditions: the save has to be a success! Which it is if no
-		// exception occurred - in other words, if you get here.
+		// postconditions: the snapshot has been taken; encoding and writing it is
+		// up to the DeckSaver, which reports any errors.
+	}
+
+	/**
+	 * Waits until all decks that have been saved have been written to disk (for
+	 * example before quitting Eb).
+	 */
+	public static void flush() {
+		try {
+			c_saver.flush().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			Logger.getGlobal().severe("DeckManager.flush() error: " + e);
+		}
 	}
 
 	/**
@@ -255,16 +493,6 @@ public class DeckManager {
 		// postconditions: handled by callee.
 	}
 
-	public static Duration getRememberedCardInterval() {
-		ensureDeckExists();
-		return m_deck.getStudyOptions().getRememberedCardInterval().asDuration();
-	}
-
-	public static double getLengtheningFactor() {
-		ensureDeckExists();
-		return m_deck.getStudyOptions().getLengtheningFactor();
-	}
-
 	public static void setNameOfLastReviewedDeck(String nameOfLastReviewedDeck) {
 		c_nameOfLastReviewedDeck = nameOfLastReviewedDeck;
 	}
@@ -284,21 +512,59 @@ public class DeckManager {
 		return m_deck.getArchivingSettings().getDirectoryName();
 	}
 
+	public static int getDeltasPerBaseArchive() {
+		ensureDeckExists();
+		return m_deck.getArchivingSettings().getDeltasPerBaseArchive();
+	}
+
+	public static int getBaseArchivesToKeep() {
+		ensureDeckExists();
+		return m_deck.getArchivingSettings().getBaseArchivesToKeep();
+	}
+
 	/**
-	 * Creates a deck based on an archive file.
+	 * Sets how often the current deck is archived in full, and how many full
+	 * archives are kept (see ArchivingSettings.setRetention).
+	 * 
+	 * @param deltasPerBaseArchive
+	 *          the number of delta archives between two base archives
+	 * @param baseArchivesToKeep
+	 *          the number of base archives to keep (0 to keep all)
+	 */
+	public static void setArchiveRetention(int deltasPerBaseArchive,
+	    int baseArchivesToKeep) {
+		ensureDeckExists();
+		m_deck.getArchivingSettings().setRetention(deltasPerBaseArchive,
+		    baseArchivesToKeep);
+	}
+
+	/**
+	 * Creates a deck based on an archive file. If the file belongs to a delta
+	 * archive (see DeckArchive), the deck is rebuilt from its base archive and
+	 * the deltas up to and including the selected one; if it belongs to a base
+	 * archive, all deltas of the base are applied.
 	 * 
 	 * @param selectedFile
 	 *          the archive file (text file) to base the new deck on.
+	 * @return the number of cards imported from the base archive, and the lines
+	 *         of the archive files that could not be imported
 	 */
-	public static void createDeckFromArchive(File selectedFile) {
-		String fileName = selectedFile.getName();
-		int sizeOfFileName = fileName.length();
-		int sizeOfEnd = "_DDMMYY_HHMM.txt".length();
-		String deckName = fileName.substring(0, sizeOfFileName - sizeOfEnd);
-		createDeckWithName(deckName);
+	public static CardConverter.ImportReport createDeckFromArchive(
+	    File selectedFile) {
+		List<File> archiveFiles = DeckArchive.getRestorationFiles(selectedFile)
+		    .orElse(Collections.singletonList(selectedFile));
+		File baseFile = archiveFiles.get(0);
+		createDeckWithName(DeckArchive.getDeckName(baseFile));
 		ensureDeckExists();
 
-		CardConverter.extractCardsFromArchiveFile(selectedFile);
+		CardConverter.ImportReport importReport = CardConverter
+		    .extractCardsFromArchiveFile(baseFile, linesRead -> Logger.getGlobal()
+		        .info("Importing " + baseFile + ": " + linesRead + " lines read"));
+		for (File deltaFile : archiveFiles.subList(1, archiveFiles.size())) {
+			importReport = importReport.withErrors(DeckArchive
+			    .applyDelta(deltaFile, m_deck.getCards(), m_deck.getClock()));
+		}
+		return importReport;
 	}
 
 	/**
@@ -0,0 +1,179 @@
+package eb.data;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Optional;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+
+import eb.subwindow.ArchivingSettings;
+import eb.subwindow.SchedulingAlgorithm;
+import eb.subwindow.StudyOptions;
+import eb.subwindow.TimedModus;
+import eb.utilities.TimeInterval;
+import eb.utilities.TimeUnit;
+import eb.utilities.Utilities;
+
+/**
+ * The DeckReader reads a deck written by the DeckWriter (see DeckFileFormat).
+ * Cards are read one at a time from the stream, so reading takes time
+ * proportional to the size of the deck.
+ *
+ * @author Eric-Wubbo Lameijer
+ */
+class DeckReader {
+
+	/**
+	 * Hide implicit public constructor, as this is a static utility class.
+	 */
+	private DeckReader() {
+		Utilities.require(false, "DeckReader constructor error: DeckReader is a "
+		    + "static utility class and objects of it should not be created.");
+	}
+
+	/**
+	 * Reads a deck from the given stream. Does not close the stream.
+	 *
+	 * @param inputStream
+	 *          the stream to read the deck from
+	 * @return the deck that has been read
+	 * @throws IOException
+	 *           if the stream cannot be read, or does not contain a valid deck
+	 */
+	static Deck read(InputStream inputStream) throws IOException {
+		Utilities.require(inputStream != null,
+		    "DeckReader.read() error: the input stream should not be null.");
+		BufferedInputStream bufferedStream = new BufferedInputStream(inputStream);
+		DataInputStream headerAndTrailer = new DataInputStream(bufferedStream);
+		if (headerAndTrailer.readInt() != DeckFileFormat.MAGIC_NUMBER) {
+			throw new IOException("DeckReader.read() error: not an Eb deck file.");
+		}
+		int version = headerAndTrailer.readInt();
+		if (version < 1 || version > DeckFileFormat.CURRENT_VERSION) {
+			throw new IOException("DeckReader.read() error: unsupported deck file "
+			    + "version " + version + ".");
+		}
+
+		CRC32 checksum = new CRC32();
+		DataInputStream body = new DataInputStream(
+		    new CheckedInputStream(bufferedStream, checksum));
+		Deck deck = readBody(body, version);
+
+		int storedChecksum = headerAndTrailer.readInt();
+		if (storedChecksum != (int) checksum.getValue()) {
+			throw new IOException("DeckReader.read() error: the deck file is "
+			    + "corrupted (checksum mismatch).");
+		}
+		headerAndTrailer.readLong(); // the body length; already implied
+		return deck;
+	}
+
+	private static Deck readBody(DataInputStream body, int version)
+	    throws IOException {
+		String name = body.readUTF();
+		Deck deck = new Deck(name);
+		deck.setStudyOptions(readStudyOptions(body, version));
+		String archivingDirectoryName = body.readUTF();
+		File archivingDirectory = archivingDirectoryName.isEmpty() ? null
+		    : new File(archivingDirectoryName);
+		if (version >= 2) {
+			// version 2 added the retention policy of the archives
+			int deltasPerBaseArchive = DeckFileFormat.readVarInt(body);
+			int baseArchivesToKeep = DeckFileFormat.readVarInt(body);
+			deck.setArchivingSettings(new ArchivingSettings(archivingDirectory,
+			    deltasPerBaseArchive, baseArchivesToKeep));
+		} else {
+			deck.setArchivingSettings(new ArchivingSettings(archivingDirectory));
+		}
+
+		String[] strings = new String[DeckFileFormat.readVarInt(body)];
+		for (int stringIndex = 0; stringIndex < strings.length; stringIndex++) {
+			byte[] bytes = new byte[DeckFileFormat.readVarInt(body)];
+			body.readFully(bytes);
+			strings[stringIndex] = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		int cardCount = DeckFileFormat.readVarInt(body);
+		CardCollection cards = deck.getCards();
+		for (int cardIndex = 0; cardIndex < cardCount; cardIndex++) {
+			cards.restoreCard(readCard(strings, body));
+		}
+		return deck;
+	}
+
+	private static Card readCard(String[] strings, DataInputStream body)
+	    throws IOException {
+		String front = getString(strings, DeckFileFormat.readVarInt(body));
+		String back = getString(strings, DeckFileFormat.readVarInt(body));
+		long previousInstant = body.readLong();
+		Instant creationInstant = Instant.ofEpochMilli(previousInstant);
+		int reviewCount = DeckFileFormat.readVarInt(body);
+		ReviewHistory reviews = new ReviewHistory(reviewCount);
+		for (int reviewIndex = 0; reviewIndex < reviewCount; reviewIndex++) {
+			long instant = previousInstant
+			    + DeckFileFormat.zigzagDecode(DeckFileFormat.readVarLong(body));
+			previousInstant = instant;
+			long packedResult = DeckFileFormat.readVarLong(body);
+			boolean wasSuccess = (packedResult & 1) != 0;
+			int thinkingTime = (int) Math.min(packedResult >>> 1,
+			    Integer.MAX_VALUE);
+			reviews.add(instant, thinkingTime, wasSuccess);
+		}
+		return new Card(front, back, creationInstant, reviews);
+	}
+
+	private static String getString(String[] strings, int index)
+	    throws IOException {
+		if (index >= strings.length) {
+			throw new IOException("DeckReader.getString() error: invalid index "
+			    + "into the string table.");
+		}
+		return strings[index];
+	}
+
+	private static StudyOptions readStudyOptions(DataInputStream body,
+	    int version) throws IOException {
+		TimeInterval initialInterval = readTimeInterval(body);
+		int reviewSessionSize = body.readInt();
+		TimeInterval rememberedInterval = readTimeInterval(body);
+		TimeInterval forgottenInterval = readTimeInterval(body);
+		double lengtheningFactor = body.readDouble();
+		TimedModus timedModus = readEnum(TimedModus.class, body);
+		TimeInterval timerInterval = readTimeInterval(body);
+		// version 3 added the scheduling algorithm; older decks used the
+		// exponential one
+		SchedulingAlgorithm schedulingAlgorithm = (version >= 3)
+		    ? readEnum(SchedulingAlgorithm.class, body)
+		    : SchedulingAlgorithm.EXPONENTIAL;
+		return new StudyOptions(initialInterval, Optional.of(reviewSessionSize),
+		    rememberedInterval, forgottenInterval, Optional.of(lengtheningFactor),
+		    timedModus, timerInterval, schedulingAlgorithm);
+	}
+
+	private static TimeInterval readTimeInterval(DataInputStream body)
+	    throws IOException {
+		double scalar = body.readDouble();
+		TimeUnit unit = readEnum(TimeUnit.class, body);
+		if (scalar < 0) {
+			throw new IOException("DeckReader.readTimeInterval() error: "
+			    + "negative time interval.");
+		}
+		return new TimeInterval(scalar, unit);
+	}
+
+	private static <E extends Enum<E>> E readEnum(Class<E> enumClass,
+	    DataInputStream body) throws IOException {
+		String name = body.readUTF();
+		try {
+			return Enum.valueOf(enumClass, name);
+		} catch (IllegalArgumentException e) {
+			throw new IOException("DeckReader.readEnum() error: unknown value '"
+			    + name + "' for " + enumClass.getSimpleName() + ".", e);
+		}
+	}
+}
@@ -0,0 +1,230 @@
+package eb.data;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import eb.utilities.Utilities;
+
+/**
+ * The DeckSaver writes decks to disk on a background thread, so saving a large
+ * deck does not freeze the user interface. On the calling thread, the deck is
+ * only frozen (see FrozenDeck), which copies references rather than encoding
+ * the deck; encoding the deck and rendering its archive are done on the
+ * background thread, after which the deck can be changed freely. If a deck is
+ * saved again before its previous snapshot has been written, only the newest
+ * snapshot is written. Files are replaced atomically: they are written to a
+ * temporary file first, which then replaces the original, so a crash never
+ * leaves a half-written deck file behind.
+ *
+ * @author Eric-Wubbo Lameijer
+ */
+class DeckSaver {
+
+	// the extension of the temporary files that replace files atomically
+	private static final String TEMPORARY_EXTENSION = ".tmp";
+
+	/**
+	 * A snapshot of a deck: its frozen contents, the position its journal had
+	 * when the snapshot was taken and, if the deck should be archived too, the
+	 * changes since its previous archive.
+	 */
+	static class Snapshot {
+		private final FrozenDeck m_deck;
+		private final DeckJournal m_journal;
+		private final DeckJournal.Mark m_mark;
+		private final DeckArchive m_archive;
+		private final DeckArchive.Changes m_archiveChanges;
+
+		/**
+		 * Takes a snapshot of the deck; should be called on the thread that
+		 * changes the deck.
+		 *
+		 * @param deck
+		 *          the deck to take a snapshot of
+		 * @param journal
+		 *          the journal recording the changes to the deck (can be null)
+		 * @param archive
+		 *          the archive of the deck, if the deck should be archived too
+		 *          (can be null)
+		 */
+		Snapshot(Deck deck, DeckJournal journal, DeckArchive archive) {
+			Utilities.require(deck != null,
+			    "DeckSaver.Snapshot constructor error: the deck cannot be null.");
+			m_deck = new FrozenDeck(deck);
+			m_journal = journal;
+			m_mark = journal == null ? null : journal.mark();
+			m_archive = archive;
+			m_archiveChanges = archive == null ? null : archive.takeChanges();
+		}
+
+		private Snapshot(Snapshot newer, DeckArchive archive,
+		    DeckArchive.Changes archiveChanges) {
+			m_deck = newer.m_deck;
+			m_journal = newer.m_journal;
+			m_mark = newer.m_mark;
+			m_archive = archive;
+			m_archiveChanges = archiveChanges;
+		}
+
+		/**
+		 * Returns the snapshot that should be written instead of this (older)
+		 * snapshot and the newer one: the newer one, but archived with the
+		 * changes of both, as the changes of this snapshot have been taken from
+		 * the archive already.
+		 */
+		private Snapshot supersededBy(Snapshot newer) {
+			if (m_archive == null) {
+				return newer;
+			}
+			DeckArchive.Changes archiveChanges = new DeckArchive.Changes();
+			archiveChanges.addAll(m_archiveChanges);
+			if (newer.m_archive != null) {
+				archiveChanges.addAll(newer.m_archiveChanges);
+			}
+			return new Snapshot(newer,
+			    newer.m_archive == null ? m_archive : newer.m_archive,
+			    archiveChanges);
+		}
+	}
+
+	// writes the snapshots, one at a time, in the order they were taken
+	private final ExecutorService m_executor = Executors
+	    .newSingleThreadExecutor(runnable -> {
+		    Thread thread = new Thread(runnable, "Eb deck saver");
+		    thread.setDaemon(true);
+		    return thread;
+	    });
+
+	// the snapshots that still need to be written, by deck file
+	private final Map<File, Snapshot> m_pendingSnapshots = new LinkedHashMap<>();
+
+	/**
+	 * Writes the snapshot to disk in the background.
+	 *
+	 * @param snapshot
+	 *          the snapshot to be written
+	 */
+	void save(Snapshot snapshot) {
+		Utilities.require(snapshot != null,
+		    "DeckSaver.save() error: the snapshot cannot be null.");
+		synchronized (m_pendingSnapshots) {
+			File deckFile = snapshot.m_deck.getFileHandle();
+			Snapshot pendingSnapshot = m_pendingSnapshots.get(deckFile);
+			if (pendingSnapshot == null) {
+				m_pendingSnapshots.put(deckFile, snapshot);
+				m_executor.execute(() -> writePendingSnapshot(deckFile));
+			} else {
+				m_pendingSnapshots.put(deckFile,
+				    pendingSnapshot.supersededBy(snapshot));
+			}
+		}
+	}
+
+	/**
+	 * Returns a future that completes when all snapshots saved so far have been
+	 * written to disk.
+	 *
+	 * @return a future that completes when all snapshots have been written
+	 */
+	Future<?> flush() {
+		return m_executor.submit(() -> {
+			// the executor writes the snapshots in order, so once this runs, all
+			// earlier snapshots have been written
+		});
+	}
+
+	private void writePendingSnapshot(File deckFile) {
+		Snapshot snapshot;
+		synchronized (m_pendingSnapshots) {
+			snapshot = m_pendingSnapshots.remove(deckFile);
+		}
+		try {
+			write(snapshot);
+		} catch (IOException e) {
+			Logger.getGlobal().severe("DeckSaver.writePendingSnapshot() error: "
+			    + "cannot write the deck to " + deckFile + ": " + e);
+			if (snapshot.m_archive != null) {
+				// the changes have not (all) been archived, so the next archive
+				// should contain them
+				snapshot.m_archive.restoreChanges(snapshot.m_archiveChanges);
+			}
+		}
+	}
+
+	private static void write(Snapshot snapshot) throws IOException {
+		File deckFile = snapshot.m_deck.getFileHandle();
+		File temporaryFile = getTemporaryFile(deckFile);
+		int checksum;
+		try (FileOutputStream outStream = new FileOutputStream(temporaryFile)) {
+			checksum = DeckWriter.write(snapshot.m_deck, outStream);
+			outStream.getFD().sync();
+		}
+		if (snapshot.m_journal == null) {
+			replace(temporaryFile, deckFile);
+		} else {
+			snapshot.m_journal.compact(snapshot.m_mark, checksum,
+			    () -> replace(temporaryFile, deckFile));
+		}
+		if (snapshot.m_archive != null) {
+			DeckArchive.ArchiveFiles archiveFiles = snapshot.m_archive
+			    .createArchiveFiles(snapshot.m_deck, snapshot.m_archiveChanges);
+			for (Map.Entry<File, String> archiveFile : archiveFiles.m_newFiles
+			    .entrySet()) {
+				writeAtomically(archiveFile.getKey(),
+				    archiveFile.getValue().getBytes(StandardCharsets.UTF_8));
+			}
+			// only delete old archives once the new archive has been written
+			for (File obsoleteFile : archiveFiles.m_obsoleteFiles) {
+				Files.deleteIfExists(obsoleteFile.toPath());
+			}
+		}
+	}
+
+	/**
+	 * Replaces the contents of a file by writing them to a temporary file first,
+	 * and then replacing the file by the temporary file.
+	 *
+	 * @param file
+	 *          the file to be written
+	 * @param contents
+	 *          the new contents of the file
+	 */
+	static void writeAtomically(File file, byte[] contents) throws IOException {
+		File temporaryFile = getTemporaryFile(file);
+		writeAndSync(temporaryFile, contents);
+		replace(temporaryFile, file);
+	}
+
+	private static File getTemporaryFile(File file) {
+		return new File(file.getPath() + TEMPORARY_EXTENSION);
+	}
+
+	private static void writeAndSync(File file, byte[] contents)
+	    throws IOException {
+		try (FileOutputStream outStream = new FileOutputStream(file)) {
+			outStream.write(contents);
+			outStream.getFD().sync();
+		}
+	}
+
+	private static void replace(File source, File target) throws IOException {
+		try {
+			Files.move(source.toPath(), target.toPath(),
+			    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(source.toPath(), target.toPath(),
+			    StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package eb.data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import eb.subwindow.ArchivingSettings;
+import eb.subwindow.StudyOptions;
+import eb.utilities.TimeInterval;
+import eb.utilities.Utilities;
+
+/**
+ * The DeckWriter writes a deck to a stream in Eb's binary deck format (see
+ * DeckFileFormat). The cards are streamed, so writing a deck takes time
+ * proportional to its size, and little memory beyond the string table.
+ *
+ * @author Eric-Wubbo Lameijer
+ */
+class DeckWriter {
+
+	/**
+	 * Counts the bytes written through it, so the length of the body can be
+	 * recorded in the trailer.
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		long m_count = 0;
+
+		CountingOutputStream(OutputStream outputStream) {
+			super(outputStream);
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			m_count++;
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length)
+		    throws IOException {
+			out.write(bytes, offset, length);
+			m_count += length;
+		}
+	}
+
+	/**
+	 * Hide implicit public constructor, as this is a static utility class.
+	 */
+	private DeckWriter() {
+		Utilities.require(false, "DeckWriter constructor error: DeckWriter is a "
+		    + "static utility class and objects of it should not be created.");
+	}
+
+	/**
+	 * Writes the deck to the given stream. Does not close the stream.
+	 *
+	 * @param deck
+	 *          the deck to be written
+	 * @param outputStream
+	 *          the stream to write the deck to
+	 * @return the checksum of the body of the deck file, which identifies this
+	 *         version of the deck (see DeckJournal)
+	 */
+	static int write(Deck deck, OutputStream outputStream) throws IOException {
+		Utilities.require(deck != null,
+		    "DeckWriter.write() error: the deck should not be null.");
+		return write(new FrozenDeck(deck), outputStream);
+	}
+
+	/**
+	 * Writes a frozen deck to the given stream. Does not close the stream. Can be
+	 * called on any thread, as the frozen deck does not change.
+	 *
+	 * @param deck
+	 *          the deck to be written
+	 * @param outputStream
+	 *          the stream to write the deck to
+	 * @return the checksum of the body of the deck file (see DeckJournal)
+	 */
+	static int write(FrozenDeck deck, OutputStream outputStream)
+	    throws IOException {
+		Utilities.require(deck != null && outputStream != null,
+		    "DeckWriter.write() error: the deck and the output stream should not "
+		        + "be null.");
+		BufferedOutputStream bufferedStream = new BufferedOutputStream(
+		    outputStream);
+		DataOutputStream headerAndTrailer = new DataOutputStream(bufferedStream);
+		headerAndTrailer.writeInt(DeckFileFormat.MAGIC_NUMBER);
+		headerAndTrailer.writeInt(DeckFileFormat.CURRENT_VERSION);
+
+		CRC32 checksum = new CRC32();
+		CountingOutputStream countingStream = new CountingOutputStream(
+		    new CheckedOutputStream(bufferedStream, checksum));
+		DataOutputStream body = new DataOutputStream(countingStream);
+		writeBody(deck, body);
+		body.flush();
+
+		int bodyChecksum = (int) checksum.getValue();
+		headerAndTrailer.writeInt(bodyChecksum);
+		headerAndTrailer.writeLong(countingStream.m_count);
+		headerAndTrailer.flush();
+		return bodyChecksum;
+	}
+
+	private static void writeBody(FrozenDeck deck, DataOutputStream body)
+	    throws IOException {
+		body.writeUTF(deck.getName());
+		writeStudyOptions(deck.getStudyOptions(), body);
+		ArchivingSettings archivingSettings = deck.getArchivingSettings();
+		body.writeUTF(archivingSettings.getDirectoryName());
+		DeckFileFormat.writeVarLong(body,
+		    archivingSettings.getDeltasPerBaseArchive());
+		DeckFileFormat.writeVarLong(body,
+		    archivingSettings.getBaseArchivesToKeep());
+
+		// the string table: each distinct text is written once
+		List<Card> cards = deck.getCards();
+		Map<String, Integer> stringIndexes = new HashMap<>();
+		for (Card card : cards) {
+			stringIndexes.putIfAbsent(card.getFront(), stringIndexes.size());
+			stringIndexes.putIfAbsent(card.getBack(), stringIndexes.size());
+		}
+		String[] strings = new String[stringIndexes.size()];
+		stringIndexes.forEach((string, index) -> strings[index] = string);
+		DeckFileFormat.writeVarLong(body, strings.length);
+		for (String string : strings) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			DeckFileFormat.writeVarLong(body, bytes.length);
+			body.write(bytes);
+		}
+
+		// the cards themselves
+		DeckFileFormat.writeVarLong(body, cards.size());
+		for (Card card : cards) {
+			writeCard(card, stringIndexes, body);
+		}
+	}
+
+	private static void writeCard(Card card, Map<String, Integer> stringIndexes,
+	    DataOutputStream body) throws IOException {
+		DeckFileFormat.writeVarLong(body, stringIndexes.get(card.getFront()));
+		DeckFileFormat.writeVarLong(body, stringIndexes.get(card.getBack()));
+		long previousInstant = card.getCreationInstant().toEpochMilli();
+		body.writeLong(previousInstant);
+		int reviewCount = card.getReviewCount();
+		DeckFileFormat.writeVarLong(body, reviewCount);
+		for (int reviewIndex = 0; reviewIndex < reviewCount; reviewIndex++) {
+			long instant = card.getReviewInstant(reviewIndex);
+			DeckFileFormat.writeVarLong(body,
+			    DeckFileFormat.zigzagEncode(instant - previousInstant));
+			previousInstant = instant;
+			long thinkingTime = card.getReviewThinkingTime(reviewIndex);
+			DeckFileFormat.writeVarLong(body,
+			    (thinkingTime << 1) | (card.wasReviewSuccess(reviewIndex) ? 1 : 0));
+		}
+	}
+
+	private static void writeStudyOptions(StudyOptions studyOptions,
+	    DataOutputStream body) throws IOException {
+		writeTimeInterval(studyOptions.getInitialInterval(), body);
+		body.writeInt(studyOptions.getReviewSessionSize());
+		writeTimeInterval(studyOptions.getRememberedCardInterval(), body);
+		writeTimeInterval(studyOptions.getForgottenCardInterval(), body);
+		body.writeDouble(studyOptions.getLengtheningFactor());
+		body.writeUTF(studyOptions.getTimedModus().name());
+		writeTimeInterval(studyOptions.getTimerInterval(), body);
+		body.writeUTF(studyOptions.getSchedulingAlgorithm().name());
+	}
+
+	private static void writeTimeInterval(TimeInterval timeInterval,
+	    DataOutputStream body) throws IOException {
+		body.writeDouble(timeInterval.getScalar());
+		body.writeUTF(timeInterval.getUnit().name());
+	}
+}
@@ -0,0 +1,101 @@
+package eb.data;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import eb.subwindow.SchedulingAlgorithm;
+import eb.subwindow.StudyOptions;
+
+/**
+ * Compares the sequential and the parallel calculation of due times (see
+ * DueTimes) for decks of increasing size, for each scheduling algorithm, and
+ * checks that both give the same results. Helps choose
+ * DueTimes.PARALLEL_THRESHOLD; run it as a Java application (the optional
+ * argument being the largest deck size).
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+class DueTimeBenchmark {
+
+	// the number of times each calculation is repeated; the fastest time counts
+	private static final int REPETITIONS = 15;
+
+	private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+	public static void main(String[] args) {
+		int maximumSize = (args.length > 0) ? Integer.parseInt(args[0]) : 1_000_000;
+		Random random = new Random(42);
+		System.out.println("algorithm\tcards\tsequential (ms)\tparallel (ms)\t"
+		    + "speedup");
+		for (SchedulingAlgorithm algorithm : SchedulingAlgorithm.values()) {
+			Deck deck = new Deck("benchmark");
+			StudyOptions defaults = StudyOptions.getDefault();
+			deck.setStudyOptions(new StudyOptions(defaults.getInitialInterval(),
+			    Optional.of(defaults.getReviewSessionSize()),
+			    defaults.getRememberedCardInterval(),
+			    defaults.getForgottenCardInterval(),
+			    Optional.of(defaults.getLengtheningFactor()),
+			    defaults.getTimedModus(), defaults.getTimerInterval(), algorithm));
+			for (int size = 1_000; size <= maximumSize; size *= 10) {
+				benchmark(deck, createCards(size, random), algorithm);
+				if (size * 5 <= maximumSize) {
+					benchmark(deck, createCards(size * 5, random), algorithm);
+				}
+			}
+		}
+	}
+
+	private static void benchmark(Deck deck, List<Card> cards,
+	    SchedulingAlgorithm algorithm) {
+		// makes sure the scheduler of the deck is ready
+		deck.getDueTimes(cards.subList(0, 1));
+		long sequentialTime = Long.MAX_VALUE;
+		long parallelTime = Long.MAX_VALUE;
+		long[] sequentialDueTimes = null;
+		long[] parallelDueTimes = null;
+		for (int repetition = 0; repetition < REPETITIONS; repetition++) {
+			long start = System.nanoTime();
+			sequentialDueTimes = DueTimes.calculateSequentially(cards,
+			    deck::getDueTime);
+			sequentialTime = Math.min(sequentialTime, System.nanoTime() - start);
+			start = System.nanoTime();
+			parallelDueTimes = DueTimes.calculateInParallel(cards, deck::getDueTime);
+			parallelTime = Math.min(parallelTime, System.nanoTime() - start);
+		}
+		if (!Arrays.equals(sequentialDueTimes, parallelDueTimes)) {
+			throw new IllegalStateException("DueTimeBenchmark.benchmark() error: "
+			    + "the parallel calculation gives different due times.");
+		}
+		System.out.printf("%s\t%d\t%.3f\t%.3f\t%.2f%n", algorithm.getName(),
+		    cards.size(), sequentialTime / 1e6, parallelTime / 1e6,
+		    (double) sequentialTime / parallelTime);
+	}
+
+	/**
+	 * Creates cards with between 0 and 20 reviews, spread over the past year.
+	 */
+	private static List<Card> createCards(int count, Random random) {
+		long now = System.currentTimeMillis();
+		List<Card> cards = new ArrayList<>(count);
+		for (int cardIndex = 0; cardIndex < count; cardIndex++) {
+			long instant = now - 365 * MILLIS_PER_DAY;
+			Instant creationInstant = Instant.ofEpochMilli(instant);
+			int reviewCount = random.nextInt(21);
+			List<Review> reviews = new ArrayList<>(reviewCount);
+			for (int reviewIndex = 0; reviewIndex < reviewCount; reviewIndex++) {
+				instant += (long) (random.nextDouble() * 15 * MILLIS_PER_DAY);
+				reviews.add(new Review(Instant.ofEpochMilli(instant),
+				    Duration.ofMillis(500 + random.nextInt(10_000)),
+				    random.nextInt(10) < 8));
+			}
+			cards.add(new Card("front " + cardIndex, "back " + cardIndex,
+			    creationInstant, reviews));
+		}
+		return cards;
+	}
+}
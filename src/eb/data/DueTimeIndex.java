@@ -0,0 +1,266 @@
+package eb.data;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.ToLongFunction;
+
+import eb.utilities.Utilities;
+
+/**
+ * The DueTimeIndex keeps the cards of a collection ordered by the instant at
+ * which they are due to be reviewed, so that finding out when the next review
+ * is due does not require inspecting every card of the deck. The index keeps
+ * itself up to date by observing the card collection; when the way in which
+ * due times are calculated changes (for example because the study options
+ * have been changed), it has to be rebuilt.
+ * 
+ * Additionally, the index maintains the set of cards that are due (whose due
+ * time lies before 'now'). When time advances, cards whose due time has passed
+ * are moved into that set in due time order, so that counting the reviewable
+ * cards does not require looking at each card.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+class DueTimeIndex implements CardCollectionObserver {
+
+	/**
+	 * An entry of the index: a card, with the instant (in milliseconds since the
+	 * epoch) at which it is due. The sequence number makes entries with the same
+	 * due time distinct.
+	 */
+	private static class Entry {
+		final Card m_card;
+		final long m_dueTime;
+		final long m_sequenceNumber;
+
+		Entry(Card card, long dueTime, long sequenceNumber) {
+			m_card = card;
+			m_dueTime = dueTime;
+			m_sequenceNumber = sequenceNumber;
+		}
+	}
+
+	// orders entries by due time, earliest first
+	private static final Comparator<Entry> BY_DUE_TIME = Comparator
+	    .<Entry> comparingLong(entry -> entry.m_dueTime)
+	    .thenComparingLong(entry -> entry.m_sequenceNumber);
+
+	// the cards that are indexed
+	private final CardCollection m_cards;
+
+	// calculates the due time of a card, in milliseconds since the epoch
+	private final ToLongFunction<Card> m_dueTimeCalculator;
+
+	// the entry of each card, to find (and remove) it quickly
+	private final Map<Card, Entry> m_entriesByCard = new HashMap<>();
+
+	// the entries, ordered by due time
+	private final NavigableSet<Entry> m_entriesByDueTime = new TreeSet<>(
+	    BY_DUE_TIME);
+
+	// the sequence number that the next entry will receive
+	private long m_nextSequenceNumber = 0;
+
+	// the cards whose due time lies before m_dueBefore
+	private final Set<Card> m_dueCards = new LinkedHashSet<>();
+
+	// the instant (in milliseconds since the epoch) up to which the due cards
+	// have been collected into m_dueCards. Starts at the earliest possible time,
+	// so initially no card is considered due.
+	private long m_dueBefore = Long.MIN_VALUE;
+
+	// the earliest due time of the cards that are not (yet) due. Allows
+	// advanceTo() to return immediately if no card has become due.
+	private long m_nextDueTime = Long.MAX_VALUE;
+
+	/**
+	 * Creates an index of the given cards, and ensures that it will be kept up to
+	 * date when cards are added, removed or reviewed.
+	 * 
+	 * @param cards
+	 *          the cards to be indexed
+	 * @param dueTimeCalculator
+	 *          the function that calculates when a card is due, in milliseconds
+	 *          since the epoch
+	 */
+	DueTimeIndex(CardCollection cards, ToLongFunction<Card> dueTimeCalculator) {
+		Utilities.require(cards != null && dueTimeCalculator != null,
+		    "DueTimeIndex constructor error: the cards and the due time "
+		        + "calculator should not be null.");
+		m_cards = cards;
+		m_dueTimeCalculator = dueTimeCalculator;
+		rebuild();
+		m_cards.addObserver(this);
+	}
+
+	/**
+	 * Recalculates the due times of all cards; necessary when the way due times
+	 * are calculated has changed. For large collections, the due times are
+	 * calculated in parallel (see DueTimes), so the due time calculator must be
+	 * safe to call from several threads.
+	 */
+	void rebuild() {
+		m_entriesByCard.clear();
+		m_entriesByDueTime.clear();
+		m_dueCards.clear();
+		m_nextDueTime = Long.MAX_VALUE;
+		List<Card> cards = m_cards.getCardList();
+		long[] dueTimes = DueTimes.calculate(cards, m_dueTimeCalculator);
+		for (int cardIndex = 0; cardIndex < dueTimes.length; cardIndex++) {
+			insert(cards.get(cardIndex), dueTimes[cardIndex]);
+		}
+	}
+
+	/**
+	 * Returns whether the index contains no cards.
+	 * 
+	 * @return whether the index is empty
+	 */
+	boolean isEmpty() {
+		return m_entriesByDueTime.isEmpty();
+	}
+
+	/**
+	 * Returns the due time of the card that should be reviewed first.
+	 * 
+	 * @return the earliest due time of all cards, in milliseconds since the epoch
+	 */
+	long getEarliestDueTime() {
+		Utilities.require(!isEmpty(), "DueTimeIndex.getEarliestDueTime() error: "
+		    + "the earliest due time is undefined for an empty collection.");
+		return m_entriesByDueTime.first().m_dueTime;
+	}
+
+	/**
+	 * Moves the cards that have become due before the given instant into the set
+	 * of due cards (or, if the clock has been set back, moves cards that are no
+	 * longer due out of it).
+	 * 
+	 * @param now
+	 *          the current instant, in milliseconds since the epoch
+	 */
+	void advanceTo(long now) {
+		if (now >= m_dueBefore) {
+			if (m_nextDueTime < now) {
+				for (Entry entry : entriesDueBetween(m_dueBefore, now)) {
+					m_dueCards.add(entry.m_card);
+				}
+				m_dueBefore = now;
+				updateNextDueTime();
+			} else {
+				// no card became due; nothing needs to be moved
+				m_dueBefore = now;
+			}
+		} else {
+			// time has gone backwards (for example, the system clock was changed)
+			for (Entry entry : entriesDueBetween(now, m_dueBefore)) {
+				m_dueCards.remove(entry.m_card);
+			}
+			m_dueBefore = now;
+			updateNextDueTime();
+		}
+	}
+
+	/**
+	 * Returns the number of cards that are due (as of the latest call of
+	 * advanceTo).
+	 * 
+	 * @return the number of due cards
+	 */
+	int getDueCardCount() {
+		return m_dueCards.size();
+	}
+
+	/**
+	 * Returns the cards that are due (as of the latest call of advanceTo), as an
+	 * unmodifiable view.
+	 * 
+	 * @return the due cards
+	 */
+	Collection<Card> getDueCards() {
+		return Collections.unmodifiableSet(m_dueCards);
+	}
+
+	/**
+	 * Returns the earliest due time of the cards that are not yet due (as of the
+	 * latest call of advanceTo).
+	 * 
+	 * @return the earliest due time of the cards that are not yet due, in
+	 *         milliseconds since the epoch, or Long.MAX_VALUE if all cards are
+	 *         due.
+	 */
+	long getNextDueTime() {
+		return m_nextDueTime;
+	}
+
+	/**
+	 * Returns the entries with a due time in the interval [from, to).
+	 */
+	private Collection<Entry> entriesDueBetween(long from, long to) {
+		return m_entriesByDueTime.subSet(new Entry(null, from, Long.MIN_VALUE),
+		    true, new Entry(null, to, Long.MIN_VALUE), false);
+	}
+
+	/**
+	 * Finds the earliest due time of the cards that are not yet due.
+	 */
+	private void updateNextDueTime() {
+		Entry nextEntry = m_entriesByDueTime
+		    .ceiling(new Entry(null, m_dueBefore, Long.MIN_VALUE));
+		m_nextDueTime = (nextEntry == null) ? Long.MAX_VALUE : nextEntry.m_dueTime;
+	}
+
+	private void insert(Card card) {
+		insert(card, m_dueTimeCalculator.applyAsLong(card));
+	}
+
+	private void insert(Card card, long dueTime) {
+		Entry entry = new Entry(card, dueTime, m_nextSequenceNumber++);
+		m_entriesByCard.put(card, entry);
+		m_entriesByDueTime.add(entry);
+		if (entry.m_dueTime < m_dueBefore) {
+			m_dueCards.add(card);
+		} else {
+			m_nextDueTime = Math.min(m_nextDueTime, entry.m_dueTime);
+		}
+	}
+
+	private void remove(Card card) {
+		Entry entry = m_entriesByCard.remove(card);
+		if (entry != null) {
+			m_entriesByDueTime.remove(entry);
+			if (!m_dueCards.remove(card) && entry.m_dueTime == m_nextDueTime) {
+				updateNextDueTime();
+			}
+		}
+	}
+
+	@Override
+	public void cardAdded(Card card) {
+		insert(card);
+	}
+
+	@Override
+	public void cardRemoved(Card card) {
+		remove(card);
+	}
+
+	@Override
+	public void cardChanged(Card card, String previousFront) {
+		// the contents of a card do not influence when it is due
+	}
+
+	@Override
+	public void reviewAdded(Card card) {
+		remove(card);
+		insert(card);
+	}
+}
@@ -0,0 +1,78 @@
+package eb.data;
+
+import java.util.List;
+import java.util.function.ToLongFunction;
+import java.util.stream.IntStream;
+
+import eb.utilities.Utilities;
+
+/**
+ * DueTimes calculates the due times of many cards at once (for example of all
+ * cards of a deck, when its due time index is built). Each due time only
+ * depends on its own card, so for large numbers of cards the calculation is
+ * divided over the processors; the result is the same as that of the
+ * sequential calculation, as each due time is written to its own slot of the
+ * result array. Each card is handled by a single thread, so calculating a due
+ * time may change the card it is calculated for (the FsrsScheduler caches the
+ * memory state of the card in it), but nothing else.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+class DueTimes {
+
+	// the number of cards from which the calculation is done in parallel (if
+	// there is more than one processor); below it, the cost of dividing the
+	// work over threads exceeds the gain (see DueTimeBenchmark)
+	static final int PARALLEL_THRESHOLD = 10_000;
+
+	/**
+	 * Hide implicit public constructor, as this is a static utility class.
+	 */
+	private DueTimes() {
+		Utilities.require(false, "DueTimes constructor error: "
+		    + "DueTimes is a static utility class and objects of it should not be "
+		    + "created.");
+	}
+
+	/**
+	 * Returns the due times of the given cards, calculating them in parallel if
+	 * there are enough cards to make that worthwhile. The calculator is called
+	 * from several threads at once in that case, so each call may only change
+	 * the card it is given; no card should occur twice in the list, and the
+	 * cards should not be changed by other threads during the calculation.
+	 * 
+	 * @param cards
+	 *          the cards, preferably in a list that offers fast random access
+	 * @param dueTimeCalculator
+	 *          calculates the due time of a card
+	 * @return the due times of the cards, in milliseconds since the epoch, in
+	 *         the same order as the cards
+	 */
+	static long[] calculate(List<Card> cards,
+	    ToLongFunction<Card> dueTimeCalculator) {
+		if (cards.size() >= PARALLEL_THRESHOLD
+		    && Runtime.getRuntime().availableProcessors() > 1) {
+			return calculateInParallel(cards, dueTimeCalculator);
+		} else {
+			return calculateSequentially(cards, dueTimeCalculator);
+		}
+	}
+
+	static long[] calculateSequentially(List<Card> cards,
+	    ToLongFunction<Card> dueTimeCalculator) {
+		long[] dueTimes = new long[cards.size()];
+		for (int cardIndex = 0; cardIndex < dueTimes.length; cardIndex++) {
+			dueTimes[cardIndex] = dueTimeCalculator.applyAsLong(cards.get(cardIndex));
+		}
+		return dueTimes;
+	}
+
+	static long[] calculateInParallel(List<Card> cards,
+	    ToLongFunction<Card> dueTimeCalculator) {
+		long[] dueTimes = new long[cards.size()];
+		IntStream.range(0, dueTimes.length).parallel()
+		    .forEach(cardIndex -> dueTimes[cardIndex] = dueTimeCalculator
+		        .applyAsLong(cards.get(cardIndex)));
+		return dueTimes;
+	}
+}
@@ -0,0 +1,29 @@
+package eb.data;
+
+/**
+ * Eb's original scheduling algorithm: after a successful review, the interval
+ * is the remembered card interval multiplied by the lengthening factor once for
+ * each earlier success in the streak (see IntervalCalculator).
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+class ExponentialScheduler implements Scheduler {
+
+	static final ExponentialScheduler INSTANCE = new ExponentialScheduler();
+
+	private ExponentialScheduler() {
+		// the scheduler is stateless, so one instance suffices
+	}
+
+	@Override
+	public long getDueTime(Card card, SchedulingParameters parameters) {
+		int reviewCount = card.getReviewCount();
+		long lastReviewInstant = (reviewCount == 0) ? 0
+		    : card.getLastReviewInstant();
+		return IntervalCalculator.getDueTime(
+		    card.getCreationInstant().toEpochMilli(), reviewCount,
+		    lastReviewInstant, card.streakSize(), parameters.m_initialInterval,
+		    parameters.m_rememberedCardInterval,
+		    parameters.m_forgottenCardInterval, parameters.m_lengtheningFactor);
+	}
+}
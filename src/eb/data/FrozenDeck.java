@@ -0,0 +1,117 @@
+package eb.data;
+
+import java.io.File;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import eb.subwindow.ArchivingSettings;
+import eb.subwindow.StudyOptions;
+import eb.utilities.Utilities;
+
+/**
+ * A FrozenDeck is a copy of the contents of a deck at one moment, which is not
+ * affected by later changes to the deck. Freezing a deck only copies
+ * references (the review histories of the cards are shared until they change,
+ * see ReviewHistory), so it is cheap enough to be done on the thread that
+ * changes the deck, after which the frozen deck can be encoded and archived on
+ * another thread (see DeckSaver).
+ *
+ * @author Eric-Wubbo Lameijer
+ */
+class FrozenDeck {
+
+	private final String m_name;
+	private final File m_fileHandle;
+	private final StudyOptions m_studyOptions;
+	private final ArchivingSettings m_archivingSettings;
+	private final Clock m_clock;
+
+	// copies of the cards, in the order of their fronts
+	private final List<Card> m_cards;
+
+	/**
+	 * Freezes the current contents of the deck; should be called on the thread
+	 * that changes the deck.
+	 *
+	 * @param deck
+	 *          the deck to be frozen
+	 */
+	FrozenDeck(Deck deck) {
+		Utilities.require(deck != null,
+		    "FrozenDeck constructor error: the deck cannot be null.");
+		m_name = deck.getName();
+		m_fileHandle = deck.getFileHandle();
+		m_studyOptions = deck.getStudyOptions();
+		ArchivingSettings archivingSettings = deck.getArchivingSettings();
+		m_archivingSettings = new ArchivingSettings(
+		    archivingSettings.getDirectory(),
+		    archivingSettings.getDeltasPerBaseArchive(),
+		    archivingSettings.getBaseArchivesToKeep());
+		m_clock = deck.getClock();
+		CardCollection cards = deck.getCards();
+		Card[] cardCopies = new Card[cards.getSize()];
+		Iterator<Card> cardIterator = cards.getIterator();
+		for (int cardIndex = 0; cardIndex < cardCopies.length; cardIndex++) {
+			cardCopies[cardIndex] = cardIterator.next().copy();
+		}
+		m_cards = Collections.unmodifiableList(Arrays.asList(cardCopies));
+	}
+
+	String getName() {
+		return m_name;
+	}
+
+	File getFileHandle() {
+		return m_fileHandle;
+	}
+
+	StudyOptions getStudyOptions() {
+		return m_studyOptions;
+	}
+
+	ArchivingSettings getArchivingSettings() {
+		return m_archivingSettings;
+	}
+
+	Clock getClock() {
+		return m_clock;
+	}
+
+	/**
+	 * Returns the cards of the deck, in the order of their fronts.
+	 *
+	 * @return the cards of the deck
+	 */
+	List<Card> getCards() {
+		return m_cards;
+	}
+
+	/**
+	 * Returns the card with the given front, if the deck contains one.
+	 *
+	 * @param front
+	 *          the front of the card
+	 * @return the card with that front, or an empty optional if there is none
+	 */
+	Optional<Card> getCardWithFront(String front) {
+		int low = 0;
+		int high = m_cards.size() - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			Card card = m_cards.get(middle);
+			int comparison = card.getFront().compareTo(front);
+			if (comparison < 0) {
+				low = middle + 1;
+			} else if (comparison > 0) {
+				high = middle - 1;
+			} else {
+				return Optional.of(card);
+			}
+		}
+		return Optional.empty();
+	}
+}
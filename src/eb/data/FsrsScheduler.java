@@ -0,0 +1,148 @@
+package eb.data;
+
+/**
+ * A scheduler in the style of the Free Spaced Repetition Scheduler (FSRS 4.5,
+ * with its default parameters). It models the memory of each card by its
+ * 'stability' (the time, in days, after which the chance of remembering the
+ * card has dropped to 90%) and its 'difficulty' (1-10), and updates both with
+ * each review, taking into account how long ago the previous review was. Eb's
+ * reviews are mapped to the FSRS grades 'again' (failure) and 'good'
+ * (success). The next review is planned when the chance of remembering the
+ * card has dropped to 90%, which is after 'stability' days.
+ * 
+ * As in the other algorithms, a new card is reviewed after the initial
+ * interval, and a forgotten card after the forgotten card interval. The
+ * remembered card interval and the lengthening factor are not used.
+ * 
+ * The stability and difficulty of each card are cached in the card, so a due
+ * time is calculated from the reviews added since the card was last looked at
+ * (usually none or one) rather than from its entire history. Each card is
+ * only looked at by one thread at a time (see DueTimes), so the cache needs no
+ * locking.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+class FsrsScheduler implements Scheduler {
+
+	static final FsrsScheduler INSTANCE = new FsrsScheduler();
+
+	// the default parameters (weights) of FSRS 4.5
+	private static final double[] W = { 0.4872, 1.4003, 3.7145, 13.8206, 5.1618,
+	    1.2298, 0.8975, 0.031, 1.6474, 0.1367, 1.0461, 2.1072, 0.0793, 0.3246,
+	    1.587, 0.2272, 2.8755 };
+
+	// the grades that Eb's reviews are mapped to
+	private static final int GRADE_AGAIN = 1;
+	private static final int GRADE_GOOD = 3;
+
+	// the shape of the forgetting curve: R(t) = (1 + FACTOR * t / S) ^ DECAY,
+	// chosen such that R(S) = 0.9
+	private static final double DECAY = -0.5;
+	private static final double FACTOR = 19.0 / 81.0;
+
+	private static final double MINIMUM_DIFFICULTY = 1.0;
+	private static final double MAXIMUM_DIFFICULTY = 10.0;
+
+	private static final double MILLIS_PER_DAY = 24.0 * 60 * 60 * 1000;
+
+	private FsrsScheduler() {
+		// the scheduler is stateless, so one instance suffices
+	}
+
+	@Override
+	public long getDueTime(Card card, SchedulingParameters parameters) {
+		int reviewCount = card.getReviewCount();
+		if (reviewCount == 0) {
+			return IntervalCalculator.saturatedAdd(
+			    card.getCreationInstant().toEpochMilli(),
+			    parameters.m_initialInterval);
+		}
+		long lastReviewInstant = card.getLastReviewInstant();
+		if (!card.lastReviewWasSuccess()) {
+			return IntervalCalculator.saturatedAdd(lastReviewInstant,
+			    parameters.m_forgottenCardInterval);
+		}
+		double stability = getStability(card, reviewCount);
+		// note that casting a too large double to long yields Long.MAX_VALUE
+		return IntervalCalculator.saturatedAdd(lastReviewInstant,
+		    (long) (stability * MILLIS_PER_DAY));
+	}
+
+	/**
+	 * Returns the stability of the memory of a card (in days) after its latest
+	 * review, bringing the memory state cached in the card up to date with the
+	 * reviews added since it was calculated.
+	 */
+	private static double getStability(Card card, int reviewCount) {
+		int processedReviews = card.getMemoryStateReviewCount();
+		if (processedReviews == reviewCount) {
+			return card.getStability();
+		}
+		double stability;
+		double difficulty;
+		if (processedReviews == 0) {
+			int grade = card.wasReviewSuccess(0) ? GRADE_GOOD : GRADE_AGAIN;
+			stability = W[grade - 1];
+			difficulty = clampDifficulty(getInitialDifficulty(grade));
+			processedReviews = 1;
+		} else {
+			stability = card.getStability();
+			difficulty = card.getDifficulty();
+		}
+		long previousInstant = card.getReviewInstant(processedReviews - 1);
+		for (int reviewIndex = processedReviews; reviewIndex < reviewCount;
+		    reviewIndex++) {
+			long instant = card.getReviewInstant(reviewIndex);
+			double elapsedDays = Math.max(0, instant - previousInstant)
+			    / MILLIS_PER_DAY;
+			double retrievability = Math.pow(1 + FACTOR * elapsedDays / stability,
+			    DECAY);
+			int grade;
+			if (card.wasReviewSuccess(reviewIndex)) {
+				stability = getStabilityAfterSuccess(difficulty, stability,
+				    retrievability);
+				grade = GRADE_GOOD;
+			} else {
+				stability = getStabilityAfterFailure(difficulty, stability,
+				    retrievability);
+				grade = GRADE_AGAIN;
+			}
+			difficulty = getNextDifficulty(difficulty, grade);
+			previousInstant = instant;
+		}
+		card.setMemoryState(reviewCount, stability, difficulty);
+		return stability;
+	}
+
+	private static double getInitialDifficulty(int grade) {
+		return W[4] - (grade - GRADE_GOOD) * W[5];
+	}
+
+	private static double getNextDifficulty(double difficulty, int grade) {
+		double nextDifficulty = difficulty - W[6] * (grade - GRADE_GOOD);
+		// mean reversion towards the initial difficulty of a 'good' card
+		return clampDifficulty(W[7] * getInitialDifficulty(GRADE_GOOD)
+		    + (1 - W[7]) * nextDifficulty);
+	}
+
+	private static double clampDifficulty(double difficulty) {
+		return Math.min(Math.max(difficulty, MINIMUM_DIFFICULTY),
+		    MAXIMUM_DIFFICULTY);
+	}
+
+	private static double getStabilityAfterSuccess(double difficulty,
+	    double stability, double retrievability) {
+		return stability * (1 + Math.exp(W[8]) * (11 - difficulty)
+		    * Math.pow(stability, -W[9])
+		    * (Math.exp(W[10] * (1 - retrievability)) - 1));
+	}
+
+	private static double getStabilityAfterFailure(double difficulty,
+	    double stability, double retrievability) {
+		double newStability = W[11] * Math.pow(difficulty, -W[12])
+		    * (Math.pow(stability + 1, W[13]) - 1)
+		    * Math.exp(W[14] * (1 - retrievability));
+		// forgetting a card should never make its memory more stable
+		return Math.min(newStability, stability);
+	}
+}
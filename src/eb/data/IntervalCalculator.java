@@ -0,0 +1,116 @@
+package eb.data;
+
+import eb.utilities.Utilities;
+
+/**
+ * The IntervalCalculator contains the scheduling arithmetic of Eb: given the
+ * history of a card (summarized as a few numbers) and the study options, it
+ * calculates when the card should be reviewed next. All times are expressed as
+ * primitive longs (instants in milliseconds since the epoch, intervals in
+ * milliseconds), and all methods are pure functions, so they can be called for
+ * every card of a large deck (for sorting, due time queries or statistics)
+ * without creating any objects.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+public class IntervalCalculator {
+
+	/**
+	 * Hide implicit public constructor, as this is a static utility class.
+	 */
+	private IntervalCalculator() {
+		Utilities.require(false, "IntervalCalculator constructor error: "
+		    + "IntervalCalculator is a static utility class and objects of it "
+		    + "should not be created.");
+	}
+
+	/**
+	 * Returns the time to wait for the next review after a successful review.
+	 * The first successful review is followed by the 'remembered card interval';
+	 * each further success in the streak multiplies the interval by the
+	 * lengthening factor, so the interval is
+	 * rememberedCardInterval * lengtheningFactor^(streakLength - 1). Intervals
+	 * that would be too long to express are capped at Long.MAX_VALUE.
+	 * 
+	 * @param rememberedCardInterval
+	 *          the interval after a single successful review, in milliseconds
+	 * @param lengtheningFactor
+	 *          the factor by which the interval grows with each additional
+	 *          successful review
+	 * @param streakLength
+	 *          the number of consecutive successful reviews (at least 1)
+	 * @return the time to wait for the next review, in milliseconds
+	 */
+	public static long getIntervalAfterSuccessfulReview(
+	    long rememberedCardInterval, double lengtheningFactor,
+	    int streakLength) {
+		Utilities.require(streakLength >= 1,
+		    "IntervalCalculator.getIntervalAfterSuccessfulReview() error: "
+		        + "the streak should contain at least one successful review.");
+		int numberOfLengthenings = streakLength - 1; // 2 reviews = lengthen 1x.
+		double interval = rememberedCardInterval
+		    * Math.pow(lengtheningFactor, numberOfLengthenings);
+		// note that casting a too large double to long yields Long.MAX_VALUE
+		return (long) interval;
+	}
+
+	/**
+	 * Returns the instant at which a card should be reviewed next.
+	 * 
+	 * @param creationInstant
+	 *          the instant the card was created, in milliseconds since the epoch
+	 * @param reviewCount
+	 *          the number of times the card has been reviewed
+	 * @param lastReviewInstant
+	 *          the instant of the latest review (if any), in milliseconds since
+	 *          the epoch
+	 * @param streakLength
+	 *          the number of successful reviews since the latest failure (0 if
+	 *          the latest review was a failure)
+	 * @param initialInterval
+	 *          the time between creation of a card and its first review, in
+	 *          milliseconds
+	 * @param rememberedCardInterval
+	 *          the time between a first successful review and the next review,
+	 *          in milliseconds
+	 * @param forgottenCardInterval
+	 *          the time between a failed review and the next review, in
+	 *          milliseconds
+	 * @param lengtheningFactor
+	 *          the factor by which the interval grows with each additional
+	 *          successful review
+	 * @return the instant (in milliseconds since the epoch) at which the card
+	 *         should be reviewed
+	 */
+	public static long getDueTime(long creationInstant, int reviewCount,
+	    long lastReviewInstant, int streakLength, long initialInterval,
+	    long rememberedCardInterval, long forgottenCardInterval,
+	    double lengtheningFactor) {
+		if (reviewCount == 0) {
+			// the card has never been reviewed yet. So take the creation instant
+			// and add the user-specified initial interval.
+			return saturatedAdd(creationInstant, initialInterval);
+		} else if (streakLength > 0) {
+			// the latest review was a success
+			return saturatedAdd(lastReviewInstant, getIntervalAfterSuccessfulReview(
+			    rememberedCardInterval, lengtheningFactor, streakLength));
+		} else {
+			return saturatedAdd(lastReviewInstant, forgottenCardInterval);
+		}
+	}
+
+	/**
+	 * Adds an interval to an instant; if the result is too large to express, it
+	 * is capped at Long.MAX_VALUE (a card that is due in 290 million years need
+	 * not be reviewed any time soon).
+	 */
+	static long saturatedAdd(long instant, long interval) {
+		long sum = instant + interval;
+		// overflow can only occur if both have the same sign, and the sum has the
+		// opposite sign
+		if (((instant ^ sum) & (interval ^ sum)) < 0) {
+			return (interval > 0) ? Long.MAX_VALUE : Long.MIN_VALUE;
+		}
+		return sum;
+	}
+}
@@ -1,23 +1,43 @@
 package eb.data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 
-import eb.utilities.Utilities;
-
 /**
  * A Review object stores relevant data about a review, like when it occurred,
  * how long it took, and of course the result. In future, it may also store data
  * like 'review type'.
  * 
+ * Cards do not keep their reviews as Review objects (see ReviewHistory); a
+ * Review is a small value object that is created when a review is performed,
+ * or when a review of a card is asked for. Instants and thinking times are
+ * stored with millisecond precision.
+ * 
  * @author Eric-Wubbo Lameijer
  */
 public class Review implements Serializable {
 	private static final long serialVersionUID = -3475131013697503513L;
-	private final Instant m_instant;
-	private final Duration m_thinkingTime;
-	private final boolean m_success;
+
+	// Reviews used to store an Instant and a Duration; serialize them in that
+	// form, so older versions of Eb can still read them.
+	private static final ObjectStreamField[] serialPersistentFields = {
+	    new ObjectStreamField("m_instant", Instant.class),
+	    new ObjectStreamField("m_thinkingTime", Duration.class),
+	    new ObjectStreamField("m_success", boolean.class) };
+
+	// the instant of the review, in milliseconds since the epoch
+	private transient long m_instant;
+
+	// the time the user needed to come up with the answer, in milliseconds
+	private transient int m_thinkingTime;
+
+	private transient boolean m_success;
 
 	/**
 	 * Constructor for Review objects.
@@ -29,11 +49,68 @@ public class Review implements Serializable {
 	 *          whether the user knew the answer (true) or didn't (false)
 	 */
 	public Review(Duration thinkingTime, boolean wasSuccess) {
-		m_instant = Instant.now();
+		this(thinkingTime, wasSuccess, Clock.systemDefaultZone());
+	}
+
+	/**
+	 * Constructor for Review objects of reviews that take place now, according
+	 * to the given clock (normally the clock of the deck, see Deck.getClock()).
+	 * 
+	 * @param thinkingTime
+	 *          the time the user needed to come up with his or her answer
+	 * @param wasSuccess
+	 *          whether the user knew the answer (true) or didn't (false)
+	 * @param clock
+	 *          the clock that tells when the review takes place
+	 */
+	public Review(Duration thinkingTime, boolean wasSuccess, Clock clock) {
+		this(clock.millis(), toBoundedMillis(thinkingTime), wasSuccess);
+	}
+
+	/**
+	 * Constructor for Review objects of reviews that took place earlier (for
+	 * example when reading a deck from disk).
+	 * 
+	 * @param instant
+	 *          the instant the review took place
+	 * @param thinkingTime
+	 *          the time the user needed to come up with his or her answer
+	 * @param wasSuccess
+	 *          whether the user knew the answer (true) or didn't (false)
+	 */
+	Review(Instant instant, Duration thinkingTime, boolean wasSuccess) {
+		this(instant.toEpochMilli(), toBoundedMillis(thinkingTime), wasSuccess);
+	}
+
+	/**
+	 * Constructor for Review objects from their primitive representation (see
+	 * ReviewHistory).
+	 * 
+	 * @param instant
+	 *          the instant the review took place, in milliseconds since the epoch
+	 * @param thinkingTime
+	 *          the thinking time, in milliseconds
+	 * @param wasSuccess
+	 *          whether the user knew the answer (true) or didn't (false)
+	 */
+	Review(long instant, int thinkingTime, boolean wasSuccess) {
+		m_instant = instant;
 		m_thinkingTime = thinkingTime;
 		m_success = wasSuccess;
 	}
 
+	/**
+	 * Converts a thinking time to milliseconds; negative (or missing) thinking
+	 * times become 0, and thinking times that are too long for an int are
+	 * capped.
+	 */
+	private static int toBoundedMillis(Duration duration) {
+		if (duration == null || duration.isNegative()) {
+			return 0;
+		}
+		return (int) Math.min(duration.toMillis(), Integer.MAX_VALUE);
+	}
+
 	/**
 	 * Returns whether the review was a success.
 	 * 
@@ -52,12 +129,62 @@ public class Review implements Serializable {
 	 */
 	public Instant getInstant() {
 		// preconditions: none. Instant exists if review exists
-		return m_instant;
+		return Instant.ofEpochMilli(m_instant);
 		// postconditions: none. Simple return of Instant
 	}
 
 	public double getThinkingTime() {
-		return Utilities.durationToSeconds(m_thinkingTime);
+		return m_thinkingTime / 1000.0;
+	}
+
+	/**
+	 * Returns the time the user needed to come up with the answer, as a
+	 * Duration.
+	 * 
+	 * @return the thinking time of this review
+	 */
+	Duration getThinkingDuration() { // package-private
+		return Duration.ofMillis(m_thinkingTime);
+	}
+
+	/**
+	 * Returns the instant of the review, in milliseconds since the epoch.
+	 * 
+	 * @return the instant of the review, in milliseconds since the epoch
+	 */
+	long getInstantMillis() { // package-private
+		return m_instant;
+	}
+
+	/**
+	 * Returns the time the user needed to come up with the answer.
+	 * 
+	 * @return the thinking time of this review, in milliseconds
+	 */
+	int getThinkingMillis() { // package-private
+		return m_thinkingTime;
+	}
+
+	private void writeObject(ObjectOutputStream outStream) throws IOException {
+		ObjectOutputStream.PutField fields = outStream.putFields();
+		fields.put("m_instant", getInstant());
+		fields.put("m_thinkingTime", getThinkingDuration());
+		fields.put("m_success", m_success);
+		outStream.writeFields();
+	}
+
+	private void readObject(ObjectInputStream inStream)
+	    throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = inStream.readFields();
+		Instant instant = (Instant) fields.get("m_instant", null);
+		if (instant == null) {
+			throw new IOException("Review.readObject() error: the review has no "
+			    + "instant.");
+		}
+		m_instant = instant.toEpochMilli();
+		m_thinkingTime = toBoundedMillis(
+		    (Duration) fields.get("m_thinkingTime", null));
+		m_success = fields.get("m_success", false);
 	}
 
 	public String toString() {
@@ -0,0 +1,139 @@
+package eb.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import eb.utilities.Utilities;
+
+/**
+ * The ReviewHistory stores the reviews of a card column by column: the instants
+ * of the reviews (in milliseconds since the epoch) in one array, the thinking
+ * times (in milliseconds) in another, and the results in a bit set. Compared to
+ * a list of Review objects (each holding an Instant and a Duration), this needs
+ * a few objects per card instead of several objects per review, which matters
+ * for large decks with long histories. Review objects are only created when
+ * asked for (see getReview).
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+class ReviewHistory {
+
+	// the capacity of a history that receives its first review
+	private static final int INITIAL_CAPACITY = 4;
+
+	// the instants of the reviews, in milliseconds since the epoch
+	private long[] m_instants;
+
+	// the thinking times of the reviews, in milliseconds
+	private int[] m_thinkingTimes;
+
+	// the results of the reviews: bit i is set if review i was a success
+	private BitSet m_successes = new BitSet();
+
+	// the number of reviews in the history
+	private int m_size;
+
+	// whether the arrays and the bit set are shared with a copy of this history
+	// (see copy); if so, they are copied before a review is added
+	private boolean m_isShared;
+
+	/**
+	 * Creates an empty history, with room for the given number of reviews.
+	 * 
+	 * @param capacity
+	 *          the number of reviews that can be added before the arrays have to
+	 *          grow
+	 */
+	ReviewHistory(int capacity) {
+		Utilities.require(capacity >= 0, "ReviewHistory constructor error: "
+		    + "the capacity cannot be negative.");
+		m_instants = new long[capacity];
+		m_thinkingTimes = new int[capacity];
+	}
+
+	/**
+	 * Adds a review to the end of the history.
+	 * 
+	 * @param instant
+	 *          the instant of the review, in milliseconds since the epoch
+	 * @param thinkingTime
+	 *          the thinking time, in milliseconds
+	 * @param wasSuccess
+	 *          whether the review was successful
+	 */
+	void add(long instant, int thinkingTime, boolean wasSuccess) {
+		boolean isFull = m_size == m_instants.length;
+		if (isFull || m_isShared) {
+			int newCapacity = isFull ? Math.max(INITIAL_CAPACITY, 2 * m_size)
+			    : m_instants.length;
+			m_instants = Arrays.copyOf(m_instants, newCapacity);
+			m_thinkingTimes = Arrays.copyOf(m_thinkingTimes, newCapacity);
+		}
+		if (m_isShared) {
+			m_successes = (BitSet) m_successes.clone();
+			m_isShared = false;
+		}
+		m_instants[m_size] = instant;
+		m_thinkingTimes[m_size] = thinkingTime;
+		m_successes.set(m_size, wasSuccess);
+		m_size++;
+	}
+
+	/**
+	 * Returns a copy of the history. The copy shares its storage with this
+	 * history until a review is added to either of them, so copying takes
+	 * constant time.
+	 * 
+	 * @return a copy of the history
+	 */
+	ReviewHistory copy() {
+		ReviewHistory copy = new ReviewHistory(0);
+		copy.m_instants = m_instants;
+		copy.m_thinkingTimes = m_thinkingTimes;
+		copy.m_successes = m_successes;
+		copy.m_size = m_size;
+		copy.m_isShared = true;
+		m_isShared = true;
+		return copy;
+	}
+
+	int size() {
+		return m_size;
+	}
+
+	long getInstant(int index) {
+		checkIndex(index);
+		return m_instants[index];
+	}
+
+	int getThinkingTime(int index) {
+		checkIndex(index);
+		return m_thinkingTimes[index];
+	}
+
+	boolean wasSuccess(int index) {
+		checkIndex(index);
+		return m_successes.get(index);
+	}
+
+	/**
+	 * Returns the review with the given index, as a (newly created) Review
+	 * object.
+	 * 
+	 * @param index
+	 *          the index of the review (0 being the oldest review)
+	 * @return the review
+	 */
+	Review getReview(int index) {
+		checkIndex(index);
+		return new Review(m_instants[index], m_thinkingTimes[index],
+		    m_successes.get(index));
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= m_size) {
+			throw new IndexOutOfBoundsException("ReviewHistory error: index "
+			    + index + " is not in the range [0, " + m_size + ").");
+		}
+	}
+}
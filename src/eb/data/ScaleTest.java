@@ -0,0 +1,251 @@
+package eb.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import eb.disk_io.CardConverter;
+import eb.mainwindow.reviewing.SessionPreparer;
+
+/**
+ * ScaleTest generates a synthetic deck (see SyntheticDeckGenerator) and times
+ * the operations whose duration grows with the size of the deck: saving it,
+ * loading it, building a review session and exporting it to text. It writes a
+ * report with one 'key=value' line per setting and measurement, always in the
+ * same order, so reports of different versions of Eb can be compared with
+ * diff. Run it as a Java application with arguments of the form key=value:
+ * 
+ * <pre>
+ * cards=100000 frontLength=12 backLength=20 reviews=30 successRate=0.85
+ * years=5 seed=1 repetitions=5 deck=[file to keep the generated deck in]
+ * report=[file to write the report to, instead of the standard output]
+ * </pre>
+ * 
+ * Times are in milliseconds; for each operation the fastest of the
+ * repetitions is reported, as well as the median.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+class ScaleTest {
+
+	/**
+	 * An operation to be timed; returns a number to be reported with it (like
+	 * the number of bytes written), and so keeps the work from being optimized
+	 * away.
+	 */
+	private interface Operation {
+		long run() throws IOException;
+	}
+
+	// the settings, with their default values; arguments override them
+	private final Map<String, String> m_settings = new LinkedHashMap<>();
+
+	// the report, in the order in which it was created
+	private final Map<String, String> m_report = new LinkedHashMap<>();
+
+	private ScaleTest(String[] args) {
+		m_settings.put("cards", "100000");
+		m_settings.put("frontLength", "12");
+		m_settings.put("backLength", "20");
+		m_settings.put("reviews", "30");
+		m_settings.put("successRate", "0.85");
+		m_settings.put("years", "5");
+		m_settings.put("seed", "1");
+		m_settings.put("repetitions", "5");
+		m_settings.put("deck", "");
+		m_settings.put("report", "");
+		for (String argument : args) {
+			int separatorIndex = argument.indexOf('=');
+			String key = (separatorIndex < 0) ? argument
+			    : argument.substring(0, separatorIndex);
+			if (separatorIndex < 0 || !m_settings.containsKey(key)) {
+				throw new IllegalArgumentException("ScaleTest error: unknown "
+				    + "argument '" + argument + "'; expected one of "
+				    + m_settings.keySet() + " in the form key=value.");
+			}
+			m_settings.put(key, argument.substring(separatorIndex + 1));
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		new ScaleTest(args).run();
+	}
+
+	private void run() throws IOException {
+		int cardCount = Integer.parseInt(m_settings.get("cards"));
+		int repetitions = Integer.parseInt(m_settings.get("repetitions"));
+		SyntheticDeckGenerator generator = new SyntheticDeckGenerator(cardCount,
+		    Integer.parseInt(m_settings.get("frontLength")),
+		    Integer.parseInt(m_settings.get("backLength")),
+		    Integer.parseInt(m_settings.get("reviews")),
+		    Double.parseDouble(m_settings.get("successRate")),
+		    Double.parseDouble(m_settings.get("years")),
+		    Long.parseLong(m_settings.get("seed")));
+		m_settings.forEach((key, value) -> {
+			if (!key.equals("deck") && !key.equals("report")) {
+				m_report.put("setting." + key, value);
+			}
+		});
+		m_report.put("format.version",
+		    String.valueOf(DeckFileFormat.CURRENT_VERSION));
+		m_report.put("processors",
+		    String.valueOf(Runtime.getRuntime().availableProcessors()));
+
+		String deckFileName = m_settings.get("deck");
+		File deckFile = deckFileName.isEmpty()
+		    ? File.createTempFile("ebscaletest", ".deck") : new File(deckFileName);
+		File exportFile = File.createTempFile("ebscaletest", ".txt");
+		try {
+			long now = System.currentTimeMillis();
+			Deck[] deck = new Deck[1];
+			long startOfGeneration = System.nanoTime();
+			deck[0] = generator.createDeck("scaletest", now);
+			report("generate", System.nanoTime() - startOfGeneration);
+			m_report.put("deck.reviews", String.valueOf(countReviews(deck[0])));
+			// the loaded deck uses the (fixed) clock of the generated deck, so the
+			// same cards are due in each run
+			Clock clock = deck[0].getClock();
+
+			time("save", repetitions, () -> writeDeck(deck[0], deckFile));
+			time("load", repetitions, () -> {
+				deck[0] = readDeck(deckFile);
+				deck[0].setClock(clock);
+				return deck[0].getCards().getSize();
+			});
+			m_report.put("load.heapBytes",
+			    String.valueOf(measureHeapUseOfLoadedDeck(deckFile)));
+			// the first session of a freshly loaded deck also builds the due time
+			// index, so it is timed separately
+			long startOfFirstSession = System.nanoTime();
+			long sessionSize = buildSession(deck[0]);
+			report("session.first", System.nanoTime() - startOfFirstSession);
+			m_report.put("session.reviewableCards", String.valueOf(sessionSize));
+			time("session", repetitions, () -> buildSession(deck[0]));
+			time("export", repetitions, () -> export(deck[0], exportFile));
+		} finally {
+			if (deckFileName.isEmpty()) {
+				Files.deleteIfExists(deckFile.toPath());
+			}
+			Files.deleteIfExists(exportFile.toPath());
+		}
+		writeReport();
+	}
+
+	/**
+	 * Runs an operation the given number of times, and reports the fastest and
+	 * the median time, and the result of the operation.
+	 */
+	private void time(String name, int repetitions, Operation operation)
+	    throws IOException {
+		long[] times = new long[Math.max(1, repetitions)];
+		long result = 0;
+		for (int repetition = 0; repetition < times.length; repetition++) {
+			long start = System.nanoTime();
+			result = operation.run();
+			times[repetition] = System.nanoTime() - start;
+		}
+		Arrays.sort(times);
+		report(name, times[0]);
+		m_report.put(name + ".medianMillis",
+		    formatMillis(times[times.length / 2]));
+		m_report.put(name + ".result", String.valueOf(result));
+	}
+
+	private void report(String name, long nanoseconds) {
+		m_report.put(name + ".millis", formatMillis(nanoseconds));
+	}
+
+	private static String formatMillis(long nanoseconds) {
+		return String.format(Locale.ROOT, "%.3f", nanoseconds / 1e6);
+	}
+
+	private static long countReviews(Deck deck) {
+		long reviewCount = 0;
+		for (Card card : deck.getCards().getCardList()) {
+			reviewCount += card.getReviewCount();
+		}
+		return reviewCount;
+	}
+
+	private static long writeDeck(Deck deck, File deckFile) throws IOException {
+		try (OutputStream outputStream = new BufferedOutputStream(
+		    new FileOutputStream(deckFile))) {
+			DeckWriter.write(deck, outputStream);
+		}
+		return deckFile.length();
+	}
+
+	private static Deck readDeck(File deckFile) throws IOException {
+		try (InputStream inputStream = new BufferedInputStream(
+		    new FileInputStream(deckFile))) {
+			return DeckReader.read(inputStream);
+		}
+	}
+
+	/**
+	 * Builds a review session the way the ReviewManager does when no session
+	 * has been prepared: collecting the reviewable cards and their due times,
+	 * and selecting the cards of the session. Returns the number of reviewable
+	 * cards.
+	 */
+	private static long buildSession(Deck deck) {
+		List<Card> reviewableCards = deck.getReviewableCardList();
+		long[] dueTimes = deck.getDueTimes(reviewableCards);
+		SessionPreparer.selectSessionCards(reviewableCards, dueTimes,
+		    deck.getStudyOptions().getReviewSessionSize());
+		return reviewableCards.size();
+	}
+
+	/**
+	 * Exports the cards and the review histories to text, as archiving does.
+	 */
+	private static long export(Deck deck, File exportFile) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(exportFile.toPath(),
+		    StandardCharsets.UTF_8)) {
+			deck.getCards().writeCards(writer, CardConverter::cardToLine);
+			deck.getCards().writeCards(writer, CardConverter::reviewHistoryToLine);
+		}
+		return exportFile.length();
+	}
+
+	/**
+	 * Estimates how much memory a loaded deck occupies, by comparing the used
+	 * heap (after garbage collection) before and after loading it.
+	 */
+	private static long measureHeapUseOfLoadedDeck(File deckFile)
+	    throws IOException {
+		Runtime runtime = Runtime.getRuntime();
+		System.gc();
+		long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+		Deck deck = readDeck(deckFile);
+		System.gc();
+		long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+		// use the deck, so it cannot be collected before the measurement
+		return (deck.getCards().getSize() >= 0) ? usedAfter - usedBefore : 0;
+	}
+
+	private void writeReport() throws IOException {
+		String reportFileName = m_settings.get("report");
+		try (PrintStream output = reportFileName.isEmpty() ? null
+		    : new PrintStream(new FileOutputStream(reportFileName), false,
+		        StandardCharsets.UTF_8.name())) {
+			PrintStream reportStream = (output == null) ? System.out : output;
+			m_report.forEach((key, value) -> reportStream.println(key + "=" + value));
+		}
+	}
+}
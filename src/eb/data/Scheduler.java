@@ -0,0 +1,49 @@
+package eb.data;
+
+import eb.subwindow.SchedulingAlgorithm;
+
+/**
+ * A Scheduler decides when a card should be reviewed next. Implementations are
+ * stateless (though they may cache per-card results in the card itself, see
+ * FsrsScheduler), and should not create objects while calculating due times,
+ * so that the due times of all cards of a large deck can be calculated (and
+ * cached, see DueTimeIndex) cheaply.
+ * 
+ * All shipped algorithms review a new card after the initial interval, and a
+ * forgotten card after the forgotten card interval; they differ in how the
+ * interval grows after successful reviews.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+interface Scheduler {
+
+	/**
+	 * Returns the instant at which a card should be reviewed next.
+	 * 
+	 * @param card
+	 *          the card
+	 * @param parameters
+	 *          the study options of the deck the card belongs to
+	 * @return the instant (in milliseconds since the epoch) at which the card
+	 *         should be reviewed
+	 */
+	long getDueTime(Card card, SchedulingParameters parameters);
+
+	/**
+	 * Returns the scheduler that implements the given algorithm.
+	 * 
+	 * @param algorithm
+	 *          the scheduling algorithm
+	 * @return the scheduler implementing the algorithm
+	 */
+	static Scheduler forAlgorithm(SchedulingAlgorithm algorithm) {
+		switch (algorithm) {
+		case SM2:
+			return Sm2Scheduler.INSTANCE;
+		case FSRS:
+			return FsrsScheduler.INSTANCE;
+		default:
+			return ExponentialScheduler.INSTANCE;
+		}
+	}
+}
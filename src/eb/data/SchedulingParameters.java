@@ -0,0 +1,36 @@
+package eb.data;
+
+import eb.subwindow.StudyOptions;
+
+/**
+ * The study options that a Scheduler needs, converted to primitive values
+ * (intervals in milliseconds) once, so that they don't have to be converted
+ * for each card again.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+class SchedulingParameters {
+
+	// the time between creation of a card and its first review
+	final long m_initialInterval;
+
+	// the time between a first successful review and the next review
+	final long m_rememberedCardInterval;
+
+	// the time between a failed review and the next review
+	final long m_forgottenCardInterval;
+
+	// the factor by which the interval grows with each additional successful
+	// review (used by the exponential algorithm)
+	final double m_lengtheningFactor;
+
+	SchedulingParameters(StudyOptions studyOptions) {
+		m_initialInterval = studyOptions.getInitialInterval().asDuration()
+		    .toMillis();
+		m_rememberedCardInterval = studyOptions.getRememberedCardInterval()
+		    .asDuration().toMillis();
+		m_forgottenCardInterval = studyOptions.getForgottenCardInterval()
+		    .asDuration().toMillis();
+		m_lengtheningFactor = studyOptions.getLengtheningFactor();
+	}
+}
@@ -0,0 +1,57 @@
+package eb.data;
+
+/**
+ * The SuperMemo 2 algorithm, adapted to Eb's reviews (which are either
+ * successful or not). The first successful review in a streak is followed by
+ * the remembered card interval (I), the second by 6 * I, and each further one
+ * by the previous interval times the 'easiness factor' of the card. The
+ * easiness factor starts at 2.5; a successful review (graded 4 in SM-2 terms)
+ * leaves it unchanged, while each failure (graded 2) lowers it by 0.32, to a
+ * minimum of 1.3. As successes do not change it, the easiness factor only
+ * depends on the number of failures, so the interval can be calculated
+ * directly instead of by replaying the review history.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+class Sm2Scheduler implements Scheduler {
+
+	static final Sm2Scheduler INSTANCE = new Sm2Scheduler();
+
+	private static final double INITIAL_EASINESS_FACTOR = 2.5;
+	private static final double MINIMUM_EASINESS_FACTOR = 1.3;
+	private static final double EASINESS_DECREASE_PER_FAILURE = 0.32;
+
+	// the interval after the second success, in multiples of the interval after
+	// the first
+	private static final int SECOND_INTERVAL_MULTIPLE = 6;
+
+	private Sm2Scheduler() {
+		// the scheduler is stateless, so one instance suffices
+	}
+
+	@Override
+	public long getDueTime(Card card, SchedulingParameters parameters) {
+		int reviewCount = card.getReviewCount();
+		if (reviewCount == 0) {
+			return IntervalCalculator.saturatedAdd(
+			    card.getCreationInstant().toEpochMilli(),
+			    parameters.m_initialInterval);
+		}
+		long lastReviewInstant = card.getLastReviewInstant();
+		int streakSize = card.streakSize();
+		if (streakSize == 0) {
+			return IntervalCalculator.saturatedAdd(lastReviewInstant,
+			    parameters.m_forgottenCardInterval);
+		}
+		double interval = parameters.m_rememberedCardInterval;
+		if (streakSize >= 2) {
+			double easinessFactor = Math.max(MINIMUM_EASINESS_FACTOR,
+			    INITIAL_EASINESS_FACTOR
+			        - EASINESS_DECREASE_PER_FAILURE * card.getFailureCount());
+			interval *= SECOND_INTERVAL_MULTIPLE
+			    * Math.pow(easinessFactor, streakSize - 2);
+		}
+		// note that casting a too large double to long yields Long.MAX_VALUE
+		return IntervalCalculator.saturatedAdd(lastReviewInstant, (long) interval);
+	}
+}
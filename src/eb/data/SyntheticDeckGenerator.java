@@ -0,0 +1,202 @@
+package eb.data;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import eb.utilities.Utilities;
+
+/**
+ * The SyntheticDeckGenerator creates decks of made-up cards with made-up review
+ * histories, so that Eb can be tested and timed with decks of realistic sizes
+ * without needing anyone's private decks. The texts of the cards consist of
+ * random letters, with lengths drawn from an exponential distribution (many
+ * short texts, a few long ones). The reviews are spread over the given number
+ * of years: each card is created at a random moment in that period, and is
+ * then reviewed at intervals that grow after each success and shrink after
+ * each failure, as they would with Eb's default study options. The generator
+ * is deterministic: the same settings and seed give the same deck.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+public class SyntheticDeckGenerator {
+
+	private static final long MILLIS_PER_HOUR = 60L * 60 * 1000;
+	private static final long MILLIS_PER_DAY = 24 * MILLIS_PER_HOUR;
+	private static final long MILLIS_PER_YEAR = 365 * MILLIS_PER_DAY;
+
+	// texts are at most this many times as long as their average length
+	private static final int MAXIMUM_LENGTH_FACTOR = 10;
+
+	// the average thinking time, in milliseconds
+	private static final double MEAN_THINKING_TIME = 4000.0;
+
+	// the number of cards in the deck
+	private final int m_cardCount;
+
+	// the average length of the fronts and backs of the cards, in characters
+	private final int m_meanFrontLength;
+	private final int m_meanBackLength;
+
+	// the maximum number of reviews of a card; the number of reviews of each
+	// card is drawn uniformly from [0, maximum]. Cards created recently may
+	// have fewer reviews, as reviews never lie in the future.
+	private final int m_maximumReviewCount;
+
+	// the chance that a review is successful (0-1)
+	private final double m_successRate;
+
+	// the number of years over which the cards and reviews are spread
+	private final double m_historyYears;
+
+	// the seed of the random number generator
+	private final long m_seed;
+
+	/**
+	 * Creates a generator of synthetic decks.
+	 * 
+	 * @param cardCount
+	 *          the number of cards in the deck
+	 * @param meanFrontLength
+	 *          the average length of the front of a card, in characters
+	 * @param meanBackLength
+	 *          the average length of the back of a card, in characters
+	 * @param maximumReviewCount
+	 *          the maximum number of reviews of a card
+	 * @param successRate
+	 *          the chance that a review is successful (0-1)
+	 * @param historyYears
+	 *          the number of years over which the cards and reviews are spread
+	 * @param seed
+	 *          the seed of the random number generator
+	 */
+	public SyntheticDeckGenerator(int cardCount, int meanFrontLength,
+	    int meanBackLength, int maximumReviewCount, double successRate,
+	    double historyYears, long seed) {
+		Utilities.require(cardCount >= 0 && meanFrontLength > 0
+		    && meanBackLength > 0 && maximumReviewCount >= 0,
+		    "SyntheticDeckGenerator constructor error: the number of cards and "
+		        + "reviews cannot be negative, and the texts need a positive "
+		        + "length.");
+		Utilities.require(successRate >= 0.0 && successRate <= 1.0,
+		    "SyntheticDeckGenerator constructor error: the success rate should "
+		        + "lie between 0 and 1.");
+		Utilities.require(historyYears > 0.0,
+		    "SyntheticDeckGenerator constructor error: the history should span "
+		        + "a positive number of years.");
+		m_cardCount = cardCount;
+		m_meanFrontLength = meanFrontLength;
+		m_meanBackLength = meanBackLength;
+		m_maximumReviewCount = maximumReviewCount;
+		m_successRate = successRate;
+		m_historyYears = historyYears;
+		m_seed = seed;
+	}
+
+	/**
+	 * Creates a deck of synthetic cards, with reviews up to the given moment.
+	 * The clock of the deck is fixed at that moment, so which cards are due
+	 * does not depend on when the deck is used.
+	 * 
+	 * @param name
+	 *          the name of the deck
+	 * @param now
+	 *          the moment at which the history ends, in milliseconds since the
+	 *          epoch
+	 * @return the deck
+	 */
+	public Deck createDeck(String name, long now) {
+		Random random = new Random(m_seed);
+		long historyStart = now - (long) (m_historyYears * MILLIS_PER_YEAR);
+		List<Card> cards = new ArrayList<>(m_cardCount);
+		for (int cardIndex = 0; cardIndex < m_cardCount; cardIndex++) {
+			cards.add(createCard(cardIndex, historyStart, now, random));
+		}
+		Deck deck = new Deck(name);
+		deck.setClock(Clock.fixed(Instant.ofEpochMilli(now), ZoneId.systemDefault()));
+		deck.getCards().addAll(cards);
+		return deck;
+	}
+
+	/**
+	 * Creates a deck of synthetic cards, and writes it to a deck file.
+	 * 
+	 * @param name
+	 *          the name of the deck
+	 * @param now
+	 *          the moment at which the history ends, in milliseconds since the
+	 *          epoch
+	 * @param deckFile
+	 *          the file to write the deck to
+	 * @return the deck
+	 */
+	public Deck createDeckFile(String name, long now, File deckFile)
+	    throws IOException {
+		Deck deck = createDeck(name, now);
+		try (OutputStream outputStream = new BufferedOutputStream(
+		    new FileOutputStream(deckFile))) {
+			DeckWriter.write(deck, outputStream);
+		}
+		return deck;
+	}
+
+	private Card createCard(int cardIndex, long historyStart, long now,
+	    Random random) {
+		// the index makes each front unique
+		String front = createText(m_meanFrontLength, random) + " "
+		    + Integer.toString(cardIndex, Character.MAX_RADIX);
+		String back = createText(m_meanBackLength, random);
+		long creationInstant = historyStart
+		    + (long) (random.nextDouble() * (now - historyStart));
+		int reviewCount = random.nextInt(m_maximumReviewCount + 1);
+		ReviewHistory reviews = new ReviewHistory(reviewCount);
+		long interval = MILLIS_PER_HOUR / 6; // the default initial interval
+		long instant = creationInstant;
+		for (int reviewIndex = 0; reviewIndex < reviewCount; reviewIndex++) {
+			// users review some time after the card has become due
+			instant += interval + (long) (random.nextDouble() * interval / 2);
+			if (instant > now) {
+				break;
+			}
+			boolean wasSuccess = random.nextDouble() < m_successRate;
+			int thinkingTime = (int) (-MEAN_THINKING_TIME
+			    * Math.log(1.0 - random.nextDouble()));
+			reviews.add(instant, thinkingTime, wasSuccess);
+			if (!wasSuccess) {
+				interval = MILLIS_PER_HOUR;
+			} else if (interval < MILLIS_PER_DAY) {
+				interval = MILLIS_PER_DAY;
+			} else {
+				interval *= 5; // the default lengthening factor
+			}
+		}
+		return new Card(front, back, Instant.ofEpochMilli(creationInstant),
+		    reviews);
+	}
+
+	/**
+	 * Creates a text of random lowercase words, with a length drawn from an
+	 * exponential distribution with the given mean.
+	 */
+	private static String createText(int meanLength, Random random) {
+		int length = 1 + (int) Math.min(
+		    -(meanLength - 1) * Math.log(1.0 - random.nextDouble()),
+		    MAXIMUM_LENGTH_FACTOR * meanLength);
+		StringBuilder text = new StringBuilder(length);
+		for (int characterIndex = 0; characterIndex < length; characterIndex++) {
+			// about one in six characters is a space, but not the first or last
+			boolean isSpace = characterIndex > 0 && characterIndex < length - 1
+			    && text.charAt(characterIndex - 1) != ' ' && random.nextInt(6) == 0;
+			text.append(isSpace ? ' ' : (char) ('a' + random.nextInt(26)));
+		}
+		return text.toString();
+	}
+}
@@ -0,0 +1,74 @@
+package eb.data;
+
+import java.util.Iterator;
+
+import eb.utilities.LatencyHistogram;
+import eb.utilities.Utilities;
+
+/**
+ * The ThinkingTimeTracker keeps a histogram of the thinking times of all
+ * reviews of the cards of a collection, so that percentiles of the thinking
+ * times of a deck can be shown without going through all reviews. Like the
+ * DueTimeIndex, it keeps itself up to date by observing the card collection.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+class ThinkingTimeTracker implements CardCollectionObserver {
+
+	// the thinking times of all reviews, in milliseconds
+	private final LatencyHistogram m_thinkingTimes = new LatencyHistogram();
+
+	/**
+	 * Creates a tracker of the thinking times of the given cards, and ensures
+	 * that it will be kept up to date when cards are added, removed or reviewed.
+	 * 
+	 * @param cards
+	 *          the cards whose thinking times should be tracked
+	 */
+	ThinkingTimeTracker(CardCollection cards) {
+		Utilities.require(cards != null, "ThinkingTimeTracker constructor error: "
+		    + "the cards should not be null.");
+		Iterator<Card> cardIterator = cards.getIterator();
+		while (cardIterator.hasNext()) {
+			cardAdded(cardIterator.next());
+		}
+		cards.addObserver(this);
+	}
+
+	/**
+	 * Returns the histogram of the thinking times, in milliseconds. Should not be
+	 * changed by the caller.
+	 * 
+	 * @return the histogram of the thinking times
+	 */
+	LatencyHistogram getThinkingTimes() {
+		return m_thinkingTimes;
+	}
+
+	@Override
+	public void cardAdded(Card card) {
+		for (int reviewIndex = 0; reviewIndex < card.getReviewCount();
+		    reviewIndex++) {
+			m_thinkingTimes.record(card.getReviewThinkingTime(reviewIndex));
+		}
+	}
+
+	@Override
+	public void cardRemoved(Card card) {
+		for (int reviewIndex = 0; reviewIndex < card.getReviewCount();
+		    reviewIndex++) {
+			m_thinkingTimes.remove(card.getReviewThinkingTime(reviewIndex));
+		}
+	}
+
+	@Override
+	public void cardChanged(Card card, String previousFront) {
+		// the contents of a card do not influence its thinking times
+	}
+
+	@Override
+	public void reviewAdded(Card card) {
+		m_thinkingTimes
+		    .record(card.getReviewThinkingTime(card.getReviewCount() - 1));
+	}
+}
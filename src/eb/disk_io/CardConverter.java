@@ -1,15 +1,25 @@
 package eb.disk_io;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.Writer;
-import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.logging.Logger;
 
 import eb.data.Card;
+import eb.data.CardCollection;
+import eb.data.Deck;
 import eb.data.DeckManager;
 import eb.utilities.Utilities;
 
@@ -26,10 +36,65 @@ public class CardConverter {
 	// cannot be part of the 'regular' text of a card; tab characters are
 	// perfect for that, for when the user presses TAB, instead of a tab character
 	// being added, the cursor just jumps to the other side of the card .
-	private static final String SEPARATOR_REGEX = "\\t\\t";
-
 	private static final String SEPARATOR = "\t\t";
 
+	// how many lines of an archive file are read between two progress reports
+	private static final int LINES_PER_PROGRESS_REPORT = 10000;
+
+	/**
+	 * The result of importing the cards of an archive file: the number of cards
+	 * that have been imported, and a description of each line that could not be
+	 * imported.
+	 */
+	public static class ImportReport {
+		private final int m_importedCardCount;
+		private final List<String> m_errors;
+
+		private ImportReport(int importedCardCount, List<String> errors) {
+			m_importedCardCount = importedCardCount;
+			m_errors = Collections.unmodifiableList(errors);
+		}
+
+		public int getImportedCardCount() {
+			return m_importedCardCount;
+		}
+
+		public List<String> getErrors() {
+			return m_errors;
+		}
+
+		/**
+		 * Returns a report that also lists the given problems, for example those
+		 * found in other files of the same archive.
+		 *
+		 * @param errors
+		 *          the descriptions of the lines that could not be used
+		 * @return the report with the extra problems
+		 */
+		public ImportReport withErrors(List<String> errors) {
+			List<String> allErrors = new ArrayList<>(m_errors);
+			allErrors.addAll(errors);
+			return new ImportReport(m_importedCardCount, allErrors);
+		}
+	}
+
+	/**
+	 * Is given the lines of an archive file that follow its header, one at a
+	 * time (see readArchiveFile).
+	 */
+	@FunctionalInterface
+	public interface ArchiveLineHandler {
+		/**
+		 * Uses a line of an archive file.
+		 *
+		 * @param line
+		 *          the line
+		 * @return why the line could not be used, or an empty optional if it has
+		 *         been used
+		 */
+		Optional<String> handle(String line);
+	}
+
 	private CardConverter() {
 		Utilities.require(false, "CardConverter constructor error: CardConverter "
 		    + "is a static utility class and objects of it should not be created.");
@@ -50,12 +115,32 @@ public class CardConverter {
 		// preconditions: the input line cannot be null
 		Utilities.require(line != null, "CardConverter.lineToCard() error: "
 		    + "the string to be converted cannot be null");
-		String[] strings = line.split(SEPARATOR_REGEX);
-		if (strings.length != 2 || strings[0].isEmpty()) {
-			Utilities.require(false, "CardConverter.lineToCard() error: "
-			    + "the input string is invalid.");
+		Optional<Card> card = parseLine(line, Clock.systemDefaultZone());
+		Utilities.require(card.isPresent(), "CardConverter.lineToCard() error: "
+		    + "the input string is invalid.");
+		return card.get();
+	}
+
+	/**
+	 * Splits a line into the front and back of a card, on the (literal)
+	 * separator.
+	 *
+	 * @param line
+	 *          the line to be converted
+	 * @param clock
+	 *          the clock that tells when the card is created
+	 * @return the card, or an empty optional if the line does not consist of a
+	 *         non-empty front, the separator and a non-empty back
+	 */
+	public static Optional<Card> parseLine(String line, Clock clock) {
+		int separatorIndex = line.indexOf(SEPARATOR);
+		int backIndex = separatorIndex + SEPARATOR.length();
+		if (separatorIndex <= 0 || backIndex == line.length()
+		    || line.indexOf(SEPARATOR, backIndex) >= 0) {
+			return Optional.empty();
 		}
-		return new Card(strings[0], strings[1]);
+		return Optional.of(new Card(line.substring(0, separatorIndex),
+		    line.substring(backIndex), clock));
 	}
 
 	/**
@@ -111,29 +196,88 @@ public class CardConverter {
 		}
 	}
 
-	public static void extractCardsFromArchiveFile(File selectedFile) {
-		try {
-			List<String> lines = Files.readAllLines(selectedFile.toPath(),
-			    Charset.forName("UTF-8"));
-
-			// find out which line contains the first card (skip version data and
-			// such for now)
-			int currentLine = 0;
-			while ((currentLine < lines.size())
-			    && !lines.get(currentLine).equals(SEPARATOR)) {
-				currentLine++;
-			}
-			// now skip the separator line
-			currentLine++;
-			// now read in the cards
-			for (; currentLine < lines.size(); currentLine++) {
-				Card newCard = CardConverter.lineToCard(lines.get(currentLine));
-				DeckManager.getCurrentDeck().getCards().addCard(newCard);
+	/**
+	 * Reads an archive file line by line, and gives each line after the header
+	 * to the handler. Lines that the handler cannot use are reported, as is a
+	 * failure to read the file; the lines read until then have been handled.
+	 *
+	 * @param archiveFile
+	 *          the archive file
+	 * @param progressListener
+	 *          is told how many lines have been read, every so many lines
+	 * @param lineHandler
+	 *          uses the lines of the file
+	 * @return a description of each line that could not be used
+	 */
+	public static List<String> readArchiveFile(File archiveFile,
+	    IntConsumer progressListener, ArchiveLineHandler lineHandler) {
+		List<String> errors = new ArrayList<>();
+		try (BufferedReader reader = Files.newBufferedReader(archiveFile.toPath(),
+		    StandardCharsets.UTF_8)) {
+			// skip version data and such for now: the cards start after the
+			// separator line
+			int lineNumber = 0;
+			String line;
+			do {
+				line = reader.readLine();
+				lineNumber++;
+			} while (line != null && !line.equals(SEPARATOR));
+
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				if (lineNumber % LINES_PER_PROGRESS_REPORT == 0) {
+					progressListener.accept(lineNumber);
+				}
+				Optional<String> problem = lineHandler.handle(line);
+				if (problem.isPresent()) {
+					errors.add("line " + lineNumber + ": " + problem.get());
+				}
 			}
+			progressListener.accept(lineNumber);
 		} catch (IOException e) {
 			Logger.getGlobal().info(e + "");
-			e.printStackTrace();
+			errors.add("reading the file failed: " + e.getMessage());
 		}
+		return errors;
+	}
+
+	/**
+	 * Adds the cards in an archive file to the current deck. The file is read
+	 * line by line, and the cards are added all at once, so the deck is changed
+	 * only once. Lines that do not contain a valid card, or a card whose front
+	 * is already present, are skipped and reported.
+	 *
+	 * @param selectedFile
+	 *          the archive file
+	 * @param progressListener
+	 *          is told how many lines have been read, every so many lines
+	 * @return the number of cards imported, and the lines that were skipped
+	 */
+	public static ImportReport extractCardsFromArchiveFile(File selectedFile,
+	    IntConsumer progressListener) {
+		Deck currentDeck = DeckManager.getCurrentDeck();
+		CardCollection cards = currentDeck.getCards();
+		List<Card> newCards = new ArrayList<>();
+		Set<String> newFronts = new HashSet<>();
+		List<String> errors = readArchiveFile(selectedFile, progressListener,
+		    line -> {
+			    Optional<Card> newCard = parseLine(line, currentDeck.getClock());
+			    if (!newCard.isPresent()) {
+				    return Optional.of("not a valid card");
+			    }
+			    String front = newCard.get().getFront();
+			    if (!Utilities.isStringValidIdentifier(front)
+			        || !newFronts.add(front)
+			        || cards.getCardWithFront(front).isPresent()) {
+				    return Optional.of("the front is empty or already present");
+			    }
+			    newCards.add(newCard.get());
+			    return Optional.empty();
+		    });
+		// add the cards that could be read, even if the file could not be read
+		// completely
+		cards.addAll(newCards);
+		return new ImportReport(newCards.size(), errors);
 	}
 
 }
@@ -1,9 +1,10 @@
 package eb.eventhandling;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 
 import eb.utilities.Utilities;
 
@@ -13,13 +14,67 @@ import eb.utilities.Utilities;
  * and the blackboard arranges that the listeners interested in that particular
  * kind of update are notified.
  * 
+ * Listeners are normally notified right away, on the thread that posts the
+ * update. Listeners that only need to know that something has changed (like a
+ * window that redraws itself) can instead be registered with an executor (like
+ * SwingUtilities::invokeLater); their updates are queued and delivered by that
+ * executor, and a burst of updates of the same type is delivered as a single
+ * update. Listeners can be registered and unregistered from any thread.
+ * 
  * @author Eric-Wubbo Lameijer
  */
 public class BlackBoard {
 
 	// note that the more logical Map<UpdateType, HashSet<Listener> gives problems
-	// if you iterate over the set, as calling respondToUpdate may modify the set
-	static Map<UpdateType, ArrayList<Listener>> c_listeners = new HashMap<>();
+	// if you iterate over the set, as calling respondToUpdate may modify the set;
+	// iterating over a CopyOnWriteArrayList is not affected by that.
+	static Map<UpdateType, List<Listener>> c_listeners = new ConcurrentHashMap<>();
+
+	/**
+	 * Delivers the updates for a listener that has been registered with an
+	 * executor. Updates that are posted while an earlier one is still waiting
+	 * to be delivered are combined with it.
+	 */
+	private static class QueuedListener implements Listener {
+		private final Listener m_listener;
+		private final Executor m_executor;
+		private Update m_pendingUpdate;
+		private boolean m_isUnregistered;
+
+		QueuedListener(Listener listener, Executor executor) {
+			m_listener = listener;
+			m_executor = executor;
+		}
+
+		@Override
+		public void respondToUpdate(Update update) {
+			boolean mustScheduleDelivery;
+			synchronized (this) {
+				mustScheduleDelivery = m_pendingUpdate == null;
+				m_pendingUpdate = mustScheduleDelivery ? update
+				    : m_pendingUpdate.combinedWith(update);
+			}
+			if (mustScheduleDelivery) {
+				m_executor.execute(this::deliver);
+			}
+		}
+
+		private void deliver() {
+			Update update;
+			synchronized (this) {
+				update = m_pendingUpdate;
+				m_pendingUpdate = null;
+				if (m_isUnregistered) {
+					return;
+				}
+			}
+			m_listener.respondToUpdate(update);
+		}
+
+		private synchronized void unregister() {
+			m_isUnregistered = true;
+		}
+	}
 
 	// Hide implicit public constructor
 	private BlackBoard() {
@@ -31,8 +86,8 @@ public class BlackBoard {
 	public static void post(Update update) {
 		List<Listener> listeners = c_listeners.get(update.getType());
 		if (listeners != null) {
-			for (int index = 0; index < listeners.size(); index++) {
-				listeners.get(index).respondToUpdate(update);
+			for (Listener listener : listeners) {
+				listener.respondToUpdate(update);
 			}
 		}
 	}
@@ -40,20 +95,62 @@ public class BlackBoard {
 	public static void register(Listener listener, UpdateType updateType) {
 		Utilities.require(listener != null,
 		    "BlackBoard.register() error: listener object should not be null");
-		if (!c_listeners.containsKey(updateType)) {
-			c_listeners.put(updateType, new ArrayList<Listener>());
-		}
-		c_listeners.get(updateType).add(listener);
+		c_listeners.computeIfAbsent(updateType, key -> new CopyOnWriteArrayList<>())
+		    .add(listener);
+	}
+
+	/**
+	 * Registers a listener whose updates are delivered by the given executor
+	 * instead of right away. Updates of this type that are posted before the
+	 * executor delivers the previous one are combined with it (see
+	 * Update.combinedWith), so the listener is not called for each of them.
+	 * 
+	 * @param listener
+	 *          the listener to register
+	 * @param updateType
+	 *          the type of updates the listener is interested in
+	 * @param executor
+	 *          delivers the updates, for example SwingUtilities::invokeLater to
+	 *          deliver them on the event dispatch thread
+	 */
+	public static void register(Listener listener, UpdateType updateType,
+	    Executor executor) {
+		Utilities.require(executor != null,
+		    "BlackBoard.register() error: executor should not be null");
+		Utilities.require(listener != null,
+		    "BlackBoard.register() error: listener object should not be null");
+		register(new QueuedListener(listener, executor), updateType);
 	}
 
 	public static void unRegister(Listener listener, UpdateType updateType) {
-		c_listeners.get(updateType).remove(listener);
+		List<Listener> listeners = c_listeners.get(updateType);
+		if (listeners != null) {
+			listeners.removeIf(registeredListener -> isRegistrationOf(
+			    registeredListener, listener));
+		}
 	}
 
 	public static void unRegister(Listener listener) {
 		for (UpdateType key : c_listeners.keySet()) {
-			c_listeners.get(key).remove(listener);
+			unRegister(listener, key);
 		}
+	}
 
+	/**
+	 * Returns whether the registered listener is the given listener, or
+	 * delivers queued updates to it. In the latter case, marks it as
+	 * unregistered so updates that are still queued are not delivered anymore.
+	 */
+	private static boolean isRegistrationOf(Listener registeredListener,
+	    Listener listener) {
+		if (registeredListener == listener) {
+			return true;
+		} else if (registeredListener instanceof QueuedListener
+		    && ((QueuedListener) registeredListener).m_listener == listener) {
+			((QueuedListener) registeredListener).unregister();
+			return true;
+		} else {
+			return false;
+		}
 	}
 }
@@ -1,16 +1,23 @@
 package eb.eventhandling;
 
+import java.util.Objects;
+import java.util.Optional;
+
 import eb.utilities.Utilities;
 
 public class Update {
 	UpdateType m_updateType;
 	String m_contents;
 
+	// the object the update is about (like the card that has been reviewed), or
+	// null if the update does not tell
+	Object m_payload;
+
 	public Update(UpdateType updateType) {
 		Utilities.require(updateType != UpdateType.PROGRAMSTATE_CHANGED,
 		    "Update constructor error: must give second parameter when "
 		        + "the program state changes.");
-		init(updateType, "");
+		init(updateType, "", null);
 	}
 
 	/**
@@ -25,13 +32,37 @@ public class Update {
 		Utilities.require(updateType == UpdateType.PROGRAMSTATE_CHANGED,
 		    "Update constructor error: can only give second parameter when "
 		        + "the program state changes.");
-		init(updateType, contents);
+		init(updateType, contents, null);
+
+	}
+
+	/**
+	 * Produces an update that tells what it is about, like the card that has
+	 * been changed, so listeners can react to that change only instead of
+	 * examining everything that could have changed.
+	 * 
+	 * @param updateType
+	 *          the type of the update (cannot be PROGRAMSTATE_CHANGED, which
+	 *          needs contents)
+	 * @param payload
+	 *          the object the update is about
+	 * @return the update
+	 */
+	public static Update withPayload(UpdateType updateType, Object payload) {
+		Utilities.require(updateType != UpdateType.PROGRAMSTATE_CHANGED,
+		    "Update.withPayload() error: the program state changes need "
+		        + "contents, not a payload.");
+		return new Update(updateType, "", payload);
+	}
 
+	private Update(UpdateType updateType, String contents, Object payload) {
+		init(updateType, contents, payload);
 	}
 
-	private void init(UpdateType updateType, String string) {
+	private void init(UpdateType updateType, String string, Object payload) {
 		m_updateType = updateType;
 		m_contents = string;
+		m_payload = payload;
 	}
 
 	public UpdateType getType() {
@@ -42,4 +73,39 @@ public class Update {
 		return m_contents;
 	}
 
+	/**
+	 * Returns the object the update is about, if it is of the given type. Note
+	 * that an update without payload may stand for several updates that have
+	 * been combined (see BlackBoard), so listeners should then assume that
+	 * anything may have changed.
+	 * 
+	 * @param payloadType
+	 *          the expected type of the payload
+	 * @return the payload, or an empty optional if the update has no payload of
+	 *         the given type
+	 */
+	public <T> Optional<T> getPayload(Class<T> payloadType) {
+		return payloadType.isInstance(m_payload)
+		    ? Optional.of(payloadType.cast(m_payload)) : Optional.empty();
+	}
+
+	/**
+	 * Returns the update that stands for both this update and a later update of
+	 * the same type: the later update if both are about the same thing,
+	 * otherwise an update without payload (as it is about several things).
+	 * 
+	 * @param later
+	 *          the later update
+	 * @return an update that stands for both updates
+	 */
+	Update combinedWith(Update later) { // package-private, used by BlackBoard
+		Utilities.require(later.m_updateType == m_updateType,
+		    "Update.combinedWith() error: only updates of the same type can be "
+		        + "combined.");
+		if (Objects.equals(m_payload, later.m_payload)) {
+			return later;
+		}
+		return new Update(m_updateType, later.m_contents, null);
+	}
+
 }
@@ -2,6 +2,7 @@ package eb.eventhandling;
 
 public enum UpdateType {
 	CARD_CHANGED, // card edited
+	CARD_REVIEWED, // card reviewed
 	DECK_CHANGED, // card added/removed
 	DECK_SWAPPED, // other deck loaded
 	INPUTFIELD_CHANGED, // input field in one of the options windows changed
@@ -28,10 +28,12 @@ import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
 import javax.swing.Timer;
 
 import eb.data.Deck;
 import eb.data.DeckManager;
+import eb.disk_io.CardConverter;
 import eb.eventhandling.BlackBoard;
 import eb.eventhandling.Listener;
 import eb.eventhandling.Update;
@@ -42,6 +44,7 @@ import eb.subwindow.ArchivingSettingsWindow;
 import eb.subwindow.CardEditingManager;
 import eb.subwindow.StudyOptions;
 import eb.subwindow.StudyOptionsWindow;
+import eb.utilities.EventLog;
 import eb.utilities.TimeInterval;
 import eb.utilities.Utilities;
 
@@ -87,8 +90,19 @@ public class MainWindow extends JFrame implements Listener {
 	// The reviewing panel
 	private ReviewPanel m_reviewPanel;
 
-	// To regularly update how long it is until the next reviewing session
-	private Timer m_messageUpdater;
+	// Fires when the next card becomes reviewable, so the window can start a
+	// review (or show the new number of reviewable cards) at that moment.
+	private Timer m_reviewableCardsTimer;
+
+	// Updates the countdown to the next review every second; only runs while
+	// the information panel, which shows that countdown, is visible.
+	private Timer m_countdownTimer;
+
+	// The interval between updates of the countdown, in milliseconds.
+	private static final int COUNTDOWN_INTERVAL = 1000;
+
+	// The ID of the panel that is currently shown.
+	private String m_currentPanelId = "";
 
 	/**
 	 * MainWindow constructor. Sets title of the window, and creates some widgets.
@@ -175,7 +189,7 @@ public class MainWindow extends JFrame implements Listener {
 		Deck currentDeck = DeckManager.getCurrentDeck();
 		int numReviewingPoints = currentDeck.getCards().getReviewingPoints();
 
-		int numReviewableCards = currentDeck.getReviewableCardList().size();
+		int numReviewableCards = currentDeck.getReviewableCardCount();
 		String title = "Eb: " + currentDeck.getName() + " ("
 		    + Utilities.pluralText(numReviewableCards, "card")
 		    + " to be reviewed in total";
@@ -282,12 +296,10 @@ public class MainWindow extends JFrame implements Listener {
 					    + "\" already exists. Please choose another name.");
 				} else {
 					// The deckname is valid!
-					m_messageUpdater.stop();
 					DeckManager.createDeckWithName(deckName);
 					// reset window
 					m_state = MainWindowState.REACTIVE;
-					updateOnScreenInformation();
-					m_messageUpdater.start();
+					refresh();
 
 					return;
 				}
@@ -371,12 +383,24 @@ public class MainWindow extends JFrame implements Listener {
 		addWindowListener(EventHandler.create(WindowListener.class, this,
 		    "saveAndQuit", null, "windowClosing"));
 		setVisible(true);
-		// BlackBoard.register(this, UpdateType.DECK_SWAPPED);
-		// BlackBoard.register(this, UpdateType.DECK_CHANGED);
+		// Instead of polling, the window is updated when something changes, when
+		// the next card becomes reviewable, and (while a countdown is shown) every
+		// second.
+		m_reviewableCardsTimer = new Timer(0, e -> refresh());
+		m_reviewableCardsTimer.setRepeats(false);
+		m_countdownTimer = new Timer(COUNTDOWN_INTERVAL, e -> refresh());
 		BlackBoard.register(this, UpdateType.PROGRAMSTATE_CHANGED);
-		m_messageUpdater = new Timer(100, e -> showCorrectPanel());
-		m_messageUpdater.start();
+		BlackBoard.register(this, UpdateType.DECK_SWAPPED);
+		// changes to the deck only require a refresh, so a burst of them (like
+		// an import) is combined into one refresh on the event dispatch thread
+		BlackBoard.register(this, UpdateType.DECK_CHANGED,
+		    SwingUtilities::invokeLater);
+		BlackBoard.register(this, UpdateType.CARD_CHANGED,
+		    SwingUtilities::invokeLater);
+		BlackBoard.register(this, UpdateType.CARD_REVIEWED,
+		    SwingUtilities::invokeLater);
 		updateOnScreenInformation();
+		scheduleRefreshes();
 		// postconditions: none
 	}
 
@@ -387,7 +411,20 @@ public class MainWindow extends JFrame implements Listener {
 			return;
 		} else {
 			File selectedFile = chooser.getSelectedFile();
-			DeckManager.createDeckFromArchive(selectedFile);
+			CardConverter.ImportReport importReport = DeckManager
+			    .createDeckFromArchive(selectedFile);
+			List<String> errors = importReport.getErrors();
+			if (!errors.isEmpty()) {
+				// show the first few problems; the rest are too many to read anyway
+				int shownErrorCount = Math.min(errors.size(), 10);
+				JOptionPane.showMessageDialog(this,
+				    importReport.getImportedCardCount() + " cards were imported, but "
+				        + errors.size() + " lines were skipped:" + Utilities.EOL
+				        + String.join(Utilities.EOL,
+				            errors.subList(0, shownErrorCount))
+				        + (shownErrorCount < errors.size() ? Utilities.EOL + "..." : ""),
+				    "Problems importing archive", JOptionPane.WARNING_MESSAGE);
+			}
 		}
 	}
 
@@ -432,17 +469,23 @@ public class MainWindow extends JFrame implements Listener {
 				return;
 			}
 			if (canDeckBeLoaded(deckName)) {
-				m_messageUpdater.stop();
-				DeckManager.loadDeck(deckName);
-				// reset window
-				m_state = MainWindowState.REACTIVE;
-				updateOnScreenInformation();
-				m_messageUpdater.start();
-				return;
+				if (DeckManager.loadDeck(deckName)) {
+					// reset window
+					m_state = MainWindowState.REACTIVE;
+					refresh();
+					return;
+				}
+				showDeckLoadingError(deckName);
 			}
 		} while (true);
 	}
 
+	private void showDeckLoadingError(String deckName) {
+		JOptionPane.showMessageDialog(null,
+		    "An error occurred while loading the deck \"" + deckName
+		        + "\". It may be an invalid file; possibly try restore it from an archive file?");
+	}
+
 	private boolean canDeckBeLoaded(String deckName) {
 		if (!Utilities.isStringValidIdentifier(deckName)) {
 			JOptionPane.showMessageDialog(null, "Sorry, \"" + deckName
@@ -456,9 +499,7 @@ public class MainWindow extends JFrame implements Listener {
 				// the only 'happy path' - otherwise false should be returned.
 				return true;
 			} else {
-				JOptionPane.showMessageDialog(null,
-				    "An error occurred while loading the deck \"" + deckName
-				        + "\". It may be an invalid file; possibly try restore it from an archive file?");
+				showDeckLoadingError(deckName);
 			}
 		}
 		return false;
@@ -492,6 +533,8 @@ public class MainWindow extends JFrame implements Listener {
 		// preconditions: (well, Eb is necessarily running)
 		saveEbStatus();
 		DeckManager.save();
+		DeckManager.flush();
+		EventLog.flush();
 		dispose();
 		// preconditions: none
 	}
@@ -511,6 +554,48 @@ public class MainWindow extends JFrame implements Listener {
 	private void switchToPanel(String panelId) {
 		CardLayout cardLayout = (CardLayout) m_modesContainer.getLayout();
 		cardLayout.show(m_modesContainer, panelId);
+		m_currentPanelId = panelId;
+	}
+
+	/**
+	 * Shows the correct panel with up-to-date information, and schedules the
+	 * next update.
+	 */
+	private void refresh() {
+		showCorrectPanel();
+		scheduleRefreshes();
+	}
+
+	/**
+	 * Ensures that the window will be refreshed when the next card becomes
+	 * reviewable, and every second as long as the countdown to the next review
+	 * is shown. When nothing is going to change, no timer runs at all.
+	 */
+	private void scheduleRefreshes() {
+		Deck currentDeck = DeckManager.getCurrentDeck();
+		Optional<Duration> timeUntilMoreCardsAreReviewable = currentDeck
+		    .getTimeUntilMoreCardsAreReviewable();
+		if (timeUntilMoreCardsAreReviewable.isPresent()) {
+			// a card is reviewable once its due time has passed, so wait one
+			// millisecond longer. Longer waits are cut short; the timer will simply
+			// be set again when it fires.
+			long delay = timeUntilMoreCardsAreReviewable.get().toMillis() + 1;
+			int timerDelay = (int) Math.min(Math.max(delay, 0), Integer.MAX_VALUE);
+			m_reviewableCardsTimer.setInitialDelay(timerDelay);
+			m_reviewableCardsTimer.restart();
+		} else {
+			m_reviewableCardsTimer.stop();
+		}
+
+		boolean countdownIsShown = m_currentPanelId.equals(INFORMATION_PANEL_ID)
+		    && currentDeck.getCards().getSize() > 0;
+		if (countdownIsShown) {
+			if (!m_countdownTimer.isRunning()) {
+				m_countdownTimer.start();
+			}
+		} else {
+			m_countdownTimer.stop();
+		}
 	}
 
 	private void showInformationPanel() {
@@ -540,6 +625,7 @@ public class MainWindow extends JFrame implements Listener {
 		if (mustReviewNow()) {
 			if (DeckManager.getCurrentDeck().getStudyOptions().isTimed()) {
 				m_state = MainWindowState.WAITING_FOR_TIMER_START;
+				switchToPanel(TIMED_REVIEW_START_PANEL_ID);
 			} else {
 				showReviewingPanel();
 			}
@@ -549,18 +635,15 @@ public class MainWindow extends JFrame implements Listener {
 	}
 
 	public void respondToUpdate(Update update) {
-		if (update.getType() == UpdateType.DECK_CHANGED) {
-			showCorrectPanel();
-		} else if (update.getType() == UpdateType.PROGRAMSTATE_CHANGED) {
+		if (update.getType() == UpdateType.PROGRAMSTATE_CHANGED) {
 			m_state = MainWindowState.valueOf(update.getContents());
 			m_reviewPanel.refresh(); // there may be new cards to refresh
 			updateOnScreenInformation();
-			showCorrectPanel();
-		} else if (update.getType() == UpdateType.DECK_SWAPPED) {
-			MainWindowState newState = (mustReviewNow()) ? MainWindowState.REVIEWING
-			    : MainWindowState.REACTIVE;
-			BlackBoard
-			    .post(new Update(UpdateType.PROGRAMSTATE_CHANGED, newState.name()));
+			refresh();
+		} else {
+			// the deck (or a card in it) has changed, so the information shown, and
+			// the moment the next card becomes reviewable, may have changed too.
+			refresh();
 		}
 	}
 
@@ -20,6 +20,7 @@ import eb.eventhandling.BlackBoard;
 import eb.eventhandling.Update;
 import eb.eventhandling.UpdateType;
 import eb.mainwindow.reviewing.ReviewManager;
+import eb.utilities.LatencyHistogram;
 import eb.utilities.ProgrammableAction;
 
 @SuppressWarnings("serial")
@@ -128,6 +129,20 @@ public class SummarizingPanel extends JPanel {
 		}
 	}
 
+	/**
+	 * Describes the median, 90th and 99th percentile of the thinking times in
+	 * the histogram (in milliseconds), in seconds.
+	 */
+	private String percentilesToString(LatencyHistogram thinkingTimes) {
+		if (thinkingTimes.getCount() == 0) {
+			return "not applicable";
+		}
+		return String.format("median %.2f, 90%% %.2f, 99%% %.2f",
+		    thinkingTimes.getPercentile(50.0) / 1000.0,
+		    thinkingTimes.getPercentile(90.0) / 1000.0,
+		    thinkingTimes.getPercentile(99.0) / 1000.0);
+	}
+
 	@Override
 	public void paintComponent(Graphics g) {
 		super.paintComponent(g);
@@ -158,10 +173,14 @@ public class SummarizingPanel extends JPanel {
 		    .average();
 		text.append("average time per incorrect card: "
 		    + optionalDoubleToString(averageIncorrectTime) + "<br>");
+		text.append("this session: " + percentilesToString(
+		    ReviewManager.getInstance().getSessionThinkingTimes()) + "<br>");
+		text.append("all reviews of this deck: " + percentilesToString(
+		    DeckManager.getCurrentDeck().getThinkingTimes()) + "<br>");
 		text.append("</html>");
 		m_report.setText(text.toString());
 		CardLayout cardLayout = (CardLayout) m_buttonPanel.getLayout();
-		if (DeckManager.getCurrentDeck().getReviewableCardList().isEmpty()) {
+		if (!DeckManager.getCurrentDeck().hasReviewableCards()) {
 			cardLayout.show(m_buttonPanel, REVIEWS_COMPLETED_MODE);
 		} else {
 			cardLayout.show(m_buttonPanel, STILL_REVIEWS_TODO_MODE);
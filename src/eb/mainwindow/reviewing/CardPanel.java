@@ -37,6 +37,10 @@ public class CardPanel extends JPanel {
 	// the area on which the text is to be displayed
 	private final JTextPane m_textPane;
 
+	// the text currently in the text pane; as long as it stays the same, the
+	// document and the layout of its views are reused
+	private String m_text = "";
+
 	/**
 	 * CardPanel constructor.
 	 */
@@ -61,7 +65,8 @@ public class CardPanel extends JPanel {
 
 	/**
 	 * Sets the text to be displayed in this panel. Can be an empty string (if the
-	 * panel must yet remain empty).
+	 * panel must yet remain empty). Setting the text that is already shown does
+	 * nothing, so callers need not check whether the card has changed.
 	 * 
 	 * @param text
 	 *          the text to display in this panel.
@@ -69,8 +74,12 @@ public class CardPanel extends JPanel {
 	void setText(String text) {
 		Utilities.require(text != null,
 		    "CardPanel.setText() error: the text cannot be null.");
+		if (text.equals(m_text)) {
+			return;
+		}
+		m_text = text;
+		// JTextPane.setText revalidates and repaints the pane by itself
 		m_textPane.setText(text);
-		repaint();
 	}
 
 }
@@ -78,9 +87,12 @@ public class CardPanel extends JPanel {
 @SuppressWarnings("serial")
 class MyEditorKit extends StyledEditorKit {
 
+	// the factory is stateless, so one instance serves all text panes
+	private static final ViewFactory c_viewFactory = new StyledViewFactory();
+
 	@Override
 	public ViewFactory getViewFactory() {
-		return new StyledViewFactory();
+		return c_viewFactory;
 	}
 
 	static class StyledViewFactory implements ViewFactory {
@@ -1,7 +1,5 @@
 package eb.mainwindow.reviewing;
 
-import java.time.Instant;
-
 import eb.utilities.Utilities;
 
 /**
@@ -10,10 +8,18 @@ import eb.utilities.Utilities;
  * multiple times (like repainting) but only the instant of first usage is
  * important.
  * 
+ * The time is read from System.nanoTime(), which is precise and, unlike the
+ * time of day, never jumps; it is only meaningful for measuring the time
+ * between two FirstTimers.
+ * 
  * @author Eric-Wubbo Lameijer
  */
 class FirstTimer {
-	Instant m_firstInstant;
+	// the time (in nanoseconds, see System.nanoTime()) stored in this object
+	private long m_firstNanoTime;
+
+	// whether a time has been stored since the latest reset
+	private boolean m_isPressed;
 
 	/**
 	 * Constructor: set the firstTimer object to the blank state, awaiting the signal
@@ -24,33 +30,34 @@ class FirstTimer {
 	}
 
 	/**
-	 * press: if the FirstTimer object is not storing a time (Instant) now, it will store
+	 * press: if the FirstTimer object is not storing a time now, it will store
 	 * the current time in the object.
 	 */
 	void press() {
-		if (m_firstInstant == null) {
-			m_firstInstant = Instant.now();
-		} // else: instant already recorded, no nothing
+		if (!m_isPressed) {
+			m_firstNanoTime = System.nanoTime();
+			m_isPressed = true;
+		} // else: time already recorded, no nothing
 	}
 
 	/**
-	 * reset: empties the FirstTimer object, so it can be reused to store a new time point (Instant)
+	 * reset: empties the FirstTimer object, so it can be reused to store a new time point
 	 */
 	void reset() {
-		m_firstInstant = null;
+		m_isPressed = false;
 	}
 
 	/**
-	 * getInstant: returns the instant stored in this object, throws an exception if someone tries to
+	 * getNanoTime: returns the time stored in this object, throws an exception if someone tries to
 	 * use a FirstTimer object erroneously [I could have returned an Optional, but throwing exceptions
 	 * helps find logic errors]
 	 * 
-	 * @return the Instant stored in this FirstTimer object.
+	 * @return the time stored in this FirstTimer object, in nanoseconds (see System.nanoTime())
 	 */
-	Instant getInstant() {
-		Utilities.require(m_firstInstant != null, "FirstTimer.getInstant() "
+	long getNanoTime() {
+		Utilities.require(m_isPressed, "FirstTimer.getNanoTime() "
 		    + "error: attempt to use time object before any time has been registered.");
-		return m_firstInstant;
+		return m_firstNanoTime;
 	}
 
-}
\ No newline at end of file
+}
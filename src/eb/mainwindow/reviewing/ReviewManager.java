@@ -2,12 +2,16 @@ package eb.mainwindow.reviewing;
 
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
-import java.util.logging.Logger;
+import java.util.Optional;
+import java.util.Set;
+import java.util.logging.Level;
 
 import eb.data.Card;
 import eb.data.Deck;
+import eb.data.DeckChange;
 import eb.data.DeckManager;
 import eb.data.Review;
 import eb.eventhandling.BlackBoard;
@@ -15,6 +19,8 @@ import eb.eventhandling.Listener;
 import eb.eventhandling.Update;
 import eb.eventhandling.UpdateType;
 import eb.mainwindow.MainWindowState;
+import eb.utilities.EventLog;
+import eb.utilities.LatencyHistogram;
 import eb.utilities.Utilities;
 
 
@@ -34,6 +40,10 @@ public class ReviewManager implements Listener {
 	private ReviewPanel m_reviewPanel;
 	private Deck m_currentDeck;
 	private List<Card> m_cardsToBeReviewed;
+
+	// the same cards as in m_cardsToBeReviewed, so it can be checked quickly
+	// whether a card that has been removed from the deck is part of the session
+	private Set<Card> m_cardsInSession;
 	
 	// m_counter stores the index of the card in the m_cardsToBeReviewed list that should be reviewed next.
 	private int m_counter;
@@ -44,6 +54,13 @@ public class ReviewManager implements Listener {
 	// m_stopTimer is activated when the user presses the button to show the answer.
 	private FirstTimer m_stopTimer = new FirstTimer();
 	
+	// the thinking times of the reviews of the current session, in milliseconds
+	private final LatencyHistogram m_sessionThinkingTimes = new LatencyHistogram();
+
+	// prepares the next review session while the user is looking at the
+	// summary of the current one
+	private final SessionPreparer m_sessionPreparer = new SessionPreparer();
+
 	// Should the answer (back of the card) be shown to the user? 'No'/false when the user is trying to recall the answer, 
 	// 'Yes'/true when the user needs to check the answer.
 	private boolean m_showAnswer;
@@ -98,6 +115,18 @@ public class ReviewManager implements Listener {
 		return listOfReviews;
 	}
 
+	/**
+	 * Returns the histogram of the thinking times of the reviews of the current
+	 * (or just finished) session, in milliseconds. Should not be changed by the
+	 * caller.
+	 * 
+	 * @return the histogram of the thinking times of the session
+	 */
+	public LatencyHistogram getSessionThinkingTimes() {
+		ensureReviewSessionIsValid();
+		return m_sessionThinkingTimes;
+	}
+
 	public String getCurrentFront() {
 		ensureReviewSessionIsValid();
 		if (activeCardExists()) {
@@ -109,25 +138,39 @@ public class ReviewManager implements Listener {
 
 	public void wasRemembered(boolean wasRemembered) {
 		ensureReviewSessionIsValid();
-		Duration duration = Duration.between(m_startTimer.getInstant(),
-		    m_stopTimer.getInstant());
-		double duration_in_s = duration.getNano() / 1000_000_000.0
-		    + duration.getSeconds();
-		Logger.getGlobal().info(m_counter + " " + duration_in_s);
-		Review review = new Review(duration, wasRemembered);
-		getCurrentCard().addReview(review);
+		Duration duration = Duration
+		    .ofNanos(m_stopTimer.getNanoTime() - m_startTimer.getNanoTime());
+		Review review = new Review(duration, wasRemembered,
+		    DeckManager.getCurrentDeck().getClock());
+		m_sessionThinkingTimes.record(duration.toMillis());
+		EventLog.log(Level.FINE, "Card reviewed (thinking time in ms, success)",
+		    duration.toMillis(), wasRemembered ? 1 : 0);
+		Card reviewedCard = getCurrentCard();
+		reviewedCard.addReview(review);
 		moveToNextReviewOrEnd();
+		BlackBoard.post(Update.withPayload(UpdateType.CARD_REVIEWED, reviewedCard));
 	}
 
 	@Override
 	public void respondToUpdate(Update update) {
+		if (update.getType() != UpdateType.DECK_SWAPPED
+		    && m_sessionPreparer.hasPreparedSession()) {
+			// the prepared session may contain the changed cards, or have missed
+			// the added ones
+			m_sessionPreparer.prepare(DeckManager.getCurrentDeck());
+		}
 		if (update.getType() == UpdateType.CARD_CHANGED) {
 			updatePanels();
 		} else if (update.getType() == UpdateType.DECK_CHANGED) {
 			// It can be that the current card has been deleted, OR another card has
-			// been deleted.
-			// initializeReviewSession();
-			updateCollection();
+			// been deleted. If the update tells which cards have been removed, only
+			// those need to be looked at.
+			Optional<DeckChange> deckChange = update.getPayload(DeckChange.class);
+			if (deckChange.isPresent()) {
+				removeFromSession(deckChange.get().getRemovedCards());
+			} else {
+				updateCollection();
+			}
 		} else if (update.getType() == UpdateType.DECK_SWAPPED) {
 			initializeReviewSession();
 			// cleanUp();
@@ -153,23 +196,19 @@ public class ReviewManager implements Listener {
 
 	private void initializeReviewSession() {
 		Deck currentDeck = DeckManager.getCurrentDeck();
-		int maxNumReviews = currentDeck.getStudyOptions().getReviewSessionSize();
-		List<Card> reviewableCards = currentDeck.getReviewableCardList();
-		int totalNumberOfReviewableCards = reviewableCards.size();
-		Logger.getGlobal()
-		    .info("Number of reviewable cards is " + totalNumberOfReviewableCards);
-		int numCardsToBeReviewed = Math.min(maxNumReviews,
-		    totalNumberOfReviewableCards);
-		// now, for best effect, those cards which have expired more recently should
-		// be rehearsed first, as other cards probably need to be relearned anyway,
-		// and we should try to contain the damage.
-		reviewableCards.sort((firstCard, secondCard) -> currentDeck
-		    .getTimeUntilNextReview(secondCard)
-		    .compareTo(currentDeck.getTimeUntilNextReview(firstCard)));
-		// get the first n for the review
-		m_cardsToBeReviewed = new ArrayList<>(
-		    reviewableCards.subList(0, numCardsToBeReviewed));
-		Collections.shuffle(m_cardsToBeReviewed);
+		// use the session prepared in the background if it is still up to date;
+		// otherwise select the cards now
+		m_cardsToBeReviewed = m_sessionPreparer.take(currentDeck)
+		    .orElseGet(() -> {
+			    List<Card> reviewableCards = currentDeck.getReviewableCardList();
+			    return SessionPreparer.selectSessionCards(reviewableCards,
+			        currentDeck.getDueTimes(reviewableCards),
+			        currentDeck.getStudyOptions().getReviewSessionSize());
+		    });
+		m_cardsInSession = new HashSet<>(m_cardsToBeReviewed);
+		m_sessionThinkingTimes.reset();
+		EventLog.log(Level.FINE, "Review session started, number of cards",
+		    m_cardsToBeReviewed.size());
 
 		m_counter = 0;
 		startCardReview();
@@ -198,7 +237,8 @@ public class ReviewManager implements Listener {
 	}
 
 	private boolean activeCardExists() {
-		return m_counter < m_cardsToBeReviewed.size();
+		return m_cardsToBeReviewed != null
+		    && m_counter < m_cardsToBeReviewed.size();
 	}
 
 	private void moveToNextReviewOrEnd() {
@@ -206,6 +246,9 @@ public class ReviewManager implements Listener {
 			m_counter++;
 			startCardReview();
 		} else {
+			// the user will look at the summary for a while: a good time to
+			// prepare the next session
+			m_sessionPreparer.prepare(DeckManager.getCurrentDeck());
 			BlackBoard.post(new Update(UpdateType.PROGRAMSTATE_CHANGED,
 			    MainWindowState.SUMMARIZING.name()));
 		}
@@ -241,40 +284,72 @@ public class ReviewManager implements Listener {
 
 	/**
 	 * If cards are added to (or, more importantly, removed from) the deck, ensure
-	 * that the card also disappears from the list of cards to be reviewed
+	 * that the card also disappears from the list of cards to be reviewed. Checks
+	 * all cards in the session; if it is known which cards have been removed,
+	 * use removeFromSession instead.
 	 */
 	public void updateCollection() {
+		if (m_cardsToBeReviewed == null) {
+			return;
+		}
+		List<Card> removedCards = new ArrayList<>();
+		for (Card card : m_cardsToBeReviewed) {
+			if (!deckContainsCard(card)) {
+				removedCards.add(card);
+			}
+		}
+		removeFromSession(removedCards);
+	}
+
+	/**
+	 * Removes cards that have been removed from the deck from the review
+	 * session, if they are part of it. If the current card is removed, the
+	 * review continues with the next card.
+	 * 
+	 * @param removedCards
+	 *          the cards that have been removed from the deck
+	 */
+	private void removeFromSession(Collection<Card> removedCards) {
+		if (m_cardsToBeReviewed == null) {
+			return;
+		}
 		boolean deletingCurrentCard = false;
-		for (int cardIndex = 0; cardIndex < m_cardsToBeReviewed.size(); cardIndex++) {
-			Card currentCard = m_cardsToBeReviewed.get(cardIndex);
-			if (!deckContainsCardWithThisFront(currentCard.getFront())) {
+		for (Card card : removedCards) {
+			if (m_cardsInSession.remove(card)) {
+				int cardIndex = m_cardsToBeReviewed.indexOf(card);
 				m_cardsToBeReviewed.remove(cardIndex);
-				deletingCurrentCard = (cardIndex == m_counter);
-				if (cardIndex <= m_counter) {
+				if (cardIndex == m_counter) {
+					// the next card has taken the place of the current card
+					deletingCurrentCard = true;
+				} else if (cardIndex < m_counter) {
 					m_counter--;
 				}
 			}
 		}
 		if (deletingCurrentCard) {
-			moveToNextReviewOrEnd();
+			if (activeCardExists()) {
+				startCardReview();
+			} else {
+				BlackBoard.post(new Update(UpdateType.PROGRAMSTATE_CHANGED,
+				    MainWindowState.SUMMARIZING.name()));
+			}
 		} else {
 			updatePanels();
 		}
 	}
 
 	/**
-	 * Returns whether this deck contains a card with this front. This sounds a
-	 * lot like whether the deck contains a card, but since by definition each
-	 * card in a deck has a unique front, just checking fronts simplifies things.
-	 * 
+	 * Returns whether this card is (still) part of the current deck. Since by
+	 * definition each card in a deck has a unique front, only the card with the
+	 * same front needs to be checked.
 	 * 
-	 * @param front
-	 *          the front which may or may not be present on a card in the deck.
-	 * @return whether the deck contains a card with the given front.
+	 * @param card
+	 *          the card which may or may not be present in the deck.
+	 * @return whether the deck contains the card.
 	 */
-	private boolean deckContainsCardWithThisFront(String front) {
-		return DeckManager.getCurrentDeck().getCards().getCardWithFront(front)
-		    .isPresent();
+	private boolean deckContainsCard(Card card) {
+		return DeckManager.getCurrentDeck().getCards()
+		    .getCardWithFront(card.getFront()).orElse(null) == card;
 	}
 
 	/**
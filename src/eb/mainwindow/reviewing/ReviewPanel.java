@@ -3,7 +3,6 @@ package eb.mainwindow.reviewing;
 import java.awt.CardLayout;
 import java.awt.Color;
 import java.awt.FlowLayout;
-import java.awt.Graphics;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.event.ComponentListener;
@@ -184,13 +183,11 @@ public class ReviewPanel extends JPanel {
 	private void remembered(boolean wasRemembered) {
 		showPanel(HIDDEN_ANSWER);
 		ReviewManager.getInstance().wasRemembered(wasRemembered);
-		repaint();
 	}
 
 	private void showAnswer() {
 		showPanel(SHOWN_ANSWER);
 		ReviewManager.getInstance().showAnswer();
-		repaint();
 	}
 
 	private void showPanel(String panelName) {
@@ -198,22 +195,25 @@ public class ReviewPanel extends JPanel {
 		cardLayout.show(m_situationalButtonPanel, panelName);
 	}
 
-	@Override
-	public void paintComponent(Graphics g) {
-		super.paintComponent(g);
-		m_frontOfCardPanel.setText(ReviewManager.getInstance().getCurrentFront());
-	}
-
+	/**
+	 * Fetches the current card from the ReviewManager again. Painting itself
+	 * never touches the card texts: the ReviewManager pushes them through
+	 * updatePanels whenever the card or the visibility of its answer changes.
+	 */
 	public void refresh() {
-		repaint();
+		ReviewManager.getInstance().updatePanels();
 	}
 
+	/**
+	 * Shows the given texts on the front and back panels, and the buttons that
+	 * fit the visibility of the answer. Texts that have not changed are not set
+	 * again, so their layout is kept.
+	 */
 	public void updatePanels(String frontText, String backText,
 	    boolean showAnswer) {
 		m_frontOfCardPanel.setText(frontText);
 		m_backOfCardPanel.setText(backText);
 		showPanel(showAnswer ? SHOWN_ANSWER : HIDDEN_ANSWER);
-
 	}
 
 }
@@ -0,0 +1,217 @@
+package eb.mainwindow.reviewing;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import eb.data.Card;
+import eb.data.Deck;
+import eb.subwindow.StudyOptions;
+import eb.utilities.EventLog;
+import eb.utilities.Utilities;
+
+/**
+ * The SessionPreparer selects the cards for the next review session in the
+ * background (for example while the user looks at the summary of the previous
+ * session), so the next session can start right away. The due times of the
+ * cards are collected on the thread that changes the deck, which is cheap;
+ * ordering and selecting the cards is done on a worker thread. A prepared
+ * session is only used if it was prepared for the same deck and study options,
+ * and no card has become reviewable since; the ReviewManager discards it when
+ * the deck changes.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+public class SessionPreparer {
+
+	// selects the cards of prepared sessions
+	private static final ExecutorService c_worker = Executors
+	    .newSingleThreadExecutor(runnable -> {
+		    Thread thread = new Thread(runnable, "Eb session preparer");
+		    thread.setDaemon(true);
+		    return thread;
+	    });
+
+	// the deck and study options the session has been prepared for, the moment
+	// (in milliseconds since the epoch) at which more cards become reviewable,
+	// and the cards of the session (null if no session has been prepared).
+	private Deck m_deck;
+	private StudyOptions m_studyOptions;
+	private long m_validUntil;
+	private Future<List<Card>> m_preparedSession;
+
+	/**
+	 * Starts preparing the next session for the given deck in the background,
+	 * discarding any session prepared earlier. Should be called on the thread
+	 * that changes the deck.
+	 * 
+	 * @param deck
+	 *          the deck to be reviewed
+	 */
+	void prepare(Deck deck) {
+		Utilities.require(deck != null,
+		    "SessionPreparer.prepare() error: the deck cannot be null.");
+		discard();
+		List<Card> reviewableCards = deck.getReviewableCardList();
+		long[] dueTimes = deck.getDueTimes(reviewableCards);
+		int sessionSize = deck.getStudyOptions().getReviewSessionSize();
+		m_deck = deck;
+		m_studyOptions = deck.getStudyOptions();
+		Optional<Duration> timeUntilMoreCardsAreReviewable = deck
+		    .getTimeUntilMoreCardsAreReviewable();
+		m_validUntil = timeUntilMoreCardsAreReviewable.isPresent()
+		    ? deck.getClock().millis()
+		        + timeUntilMoreCardsAreReviewable.get().toMillis()
+		    : Long.MAX_VALUE;
+		m_preparedSession = c_worker.submit(
+		    () -> selectSessionCards(reviewableCards, dueTimes, sessionSize));
+	}
+
+	/**
+	 * Returns whether a session is being or has been prepared.
+	 * 
+	 * @return whether a session has been prepared
+	 */
+	boolean hasPreparedSession() {
+		return m_preparedSession != null;
+	}
+
+	/**
+	 * Discards the prepared session, for example because the deck has changed.
+	 */
+	void discard() {
+		if (m_preparedSession != null) {
+			m_preparedSession.cancel(false);
+		}
+		m_preparedSession = null;
+		m_deck = null;
+		m_studyOptions = null;
+	}
+
+	/**
+	 * Returns the cards of the session prepared for the deck, waiting for the
+	 * preparation to finish if necessary. The prepared session is used only
+	 * once.
+	 * 
+	 * @param deck
+	 *          the deck to be reviewed
+	 * @return the cards of the session, or an empty optional if no (up to date)
+	 *         session has been prepared for the deck.
+	 */
+	Optional<List<Card>> take(Deck deck) {
+		Future<List<Card>> preparedSession = m_preparedSession;
+		boolean isUpToDate = preparedSession != null && deck == m_deck
+		    && deck.getStudyOptions() == m_studyOptions
+		    && deck.getClock().millis() < m_validUntil;
+		discard();
+		if (!isUpToDate) {
+			return Optional.empty();
+		}
+		try {
+			return Optional.of(preparedSession.get());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Optional.empty();
+		} catch (ExecutionException e) {
+			Logger.getGlobal()
+			    .severe("SessionPreparer.take() error: " + e.getCause());
+			return Optional.empty();
+		}
+	}
+
+	/**
+	 * Selects the cards for a review session, and puts them in random order.
+	 * The cards which have expired most recently are selected, as other cards
+	 * probably need to be relearned anyway, and we should try to contain the
+	 * damage. Instead of sorting all reviewable cards (of which there can be
+	 * many after a vacation), the selected cards are kept in a heap of the size
+	 * of the session, so selecting k cards out of n takes O(n log k).
+	 * 
+	 * @param reviewableCards
+	 *          the cards that can be reviewed
+	 * @param dueTimes
+	 *          the due times of the reviewable cards, in the same order
+	 * @param sessionSize
+	 *          the maximum number of cards in the session
+	 * @return the cards of the session
+	 */
+	public static List<Card> selectSessionCards(List<Card> reviewableCards,
+	    long[] dueTimes, int sessionSize) {
+		EventLog.log(Level.FINE, "Number of reviewable cards",
+		    reviewableCards.size());
+		int numCardsToBeReviewed = Math.min(sessionSize, reviewableCards.size());
+		// a heap of the indices of the selected cards, with the card that would
+		// be selected last at the root
+		int[] heap = new int[numCardsToBeReviewed];
+		int heapSize = 0;
+		for (int cardIndex = 0; cardIndex < reviewableCards.size(); cardIndex++) {
+			if (heapSize < numCardsToBeReviewed) {
+				heap[heapSize] = cardIndex;
+				siftUp(heap, heapSize, dueTimes);
+				heapSize++;
+			} else if (numCardsToBeReviewed > 0
+			    && isSelectedBefore(cardIndex, heap[0], dueTimes)) {
+				heap[0] = cardIndex;
+				siftDown(heap, heapSize, dueTimes);
+			}
+		}
+		List<Card> sessionCards = new ArrayList<>(numCardsToBeReviewed);
+		for (int cardIndex : heap) {
+			sessionCards.add(reviewableCards.get(cardIndex));
+		}
+		Collections.shuffle(sessionCards);
+		return sessionCards;
+	}
+
+	/**
+	 * Returns whether the first card should be selected before the second: if
+	 * it has a later due time, or the same due time and comes earlier in the
+	 * list of reviewable cards.
+	 */
+	private static boolean isSelectedBefore(int firstCardIndex,
+	    int secondCardIndex, long[] dueTimes) {
+		long firstDueTime = dueTimes[firstCardIndex];
+		long secondDueTime = dueTimes[secondCardIndex];
+		return firstDueTime > secondDueTime
+		    || (firstDueTime == secondDueTime && firstCardIndex < secondCardIndex);
+	}
+
+	private static void siftUp(int[] heap, int position, long[] dueTimes) {
+		int cardIndex = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) / 2;
+			if (!isSelectedBefore(heap[parent], cardIndex, dueTimes)) {
+				break;
+			}
+			heap[position] = heap[parent];
+			position = parent;
+		}
+		heap[position] = cardIndex;
+	}
+
+	private static void siftDown(int[] heap, int heapSize, long[] dueTimes) {
+		int cardIndex = heap[0];
+		int position = 0;
+		while (2 * position + 1 < heapSize) {
+			int child = 2 * position + 1;
+			if (child + 1 < heapSize
+			    && isSelectedBefore(heap[child], heap[child + 1], dueTimes)) {
+				child++;
+			}
+			if (!isSelectedBefore(cardIndex, heap[child], dueTimes)) {
+				break;
+			}
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = cardIndex;
+	}
+}
@@ -1,18 +1,78 @@
 package eb.subwindow;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 
+import eb.utilities.Utilities;
+
 public class ArchivingSettings implements Serializable {
 
 	/**
 	 * 
 	 */
 	private static final long serialVersionUID = 1L;
+
+	// by default, a full ('base') archive is written after every 20 archives
+	// that only contain the cards changed since the previous archive ('deltas')
+	private static final int DEFAULT_DELTAS_PER_BASE_ARCHIVE = 20;
+
+	// by default, all archives are kept; old archives are only deleted if the
+	// user asks for it
+	private static final int DEFAULT_BASE_ARCHIVES_TO_KEEP = 0;
+
 	private File m_archivingDirectory;
 
+	// the number of delta archives written between two base archives; 0 means
+	// that every archive is a base archive
+	private int m_deltasPerBaseArchive;
+
+	// the number of base archives (with their deltas) that are kept; 0 means
+	// that all archives are kept
+	private int m_baseArchivesToKeep;
+
 	public ArchivingSettings() {
-		m_archivingDirectory = null;
+		this(null);
+	}
+
+	/**
+	 * Creates archiving settings that use the given directory (for example when
+	 * restoring the settings of a deck read from disk). Unlike setDirectory,
+	 * does not create the directory.
+	 * 
+	 * @param directory
+	 *          the archiving directory, or null if none has been chosen
+	 */
+	public ArchivingSettings(File directory) {
+		this(directory, DEFAULT_DELTAS_PER_BASE_ARCHIVE,
+		    DEFAULT_BASE_ARCHIVES_TO_KEEP);
+	}
+
+	/**
+	 * Creates archiving settings that use the given directory and retention
+	 * policy. Does not create the directory.
+	 * 
+	 * @param directory
+	 *          the archiving directory, or null if none has been chosen
+	 * @param deltasPerBaseArchive
+	 *          the number of delta archives between two base archives
+	 * @param baseArchivesToKeep
+	 *          the number of base archives to keep (0 to keep all)
+	 */
+	public ArchivingSettings(File directory, int deltasPerBaseArchive,
+	    int baseArchivesToKeep) {
+		m_archivingDirectory = directory;
+		setRetention(deltasPerBaseArchive, baseArchivesToKeep);
+	}
+
+	/**
+	 * Returns the archiving directory, if one has been chosen.
+	 * 
+	 * @return the archiving directory, or null if none has been chosen
+	 */
+	public File getDirectory() {
+		return m_archivingDirectory;
 	}
 
 	public String getDirectoryName() {
@@ -27,6 +87,47 @@ public class ArchivingSettings implements Serializable {
 		return new ArchivingSettings();
 	}
 
+	public int getDeltasPerBaseArchive() {
+		return m_deltasPerBaseArchive;
+	}
+
+	public int getBaseArchivesToKeep() {
+		return m_baseArchivesToKeep;
+	}
+
+	/**
+	 * Sets how many archives are written and kept.
+	 * 
+	 * @param deltasPerBaseArchive
+	 *          the number of delta archives (containing only the cards that
+	 *          changed) between two base archives (containing all cards); 0
+	 *          makes every archive a base archive
+	 * @param baseArchivesToKeep
+	 *          the number of base archives (with their deltas) to keep; older
+	 *          archives are deleted. 0 keeps all archives.
+	 */
+	public void setRetention(int deltasPerBaseArchive, int baseArchivesToKeep) {
+		Utilities.require(deltasPerBaseArchive >= 0 && baseArchivesToKeep >= 0,
+		    "ArchivingSettings.setRetention() error: the numbers of archives "
+		        + "cannot be negative.");
+		m_deltasPerBaseArchive = deltasPerBaseArchive;
+		m_baseArchivesToKeep = baseArchivesToKeep;
+	}
+
+	/**
+	 * Reads archiving settings written by this or an older version of Eb; the
+	 * latter lack the retention policy, so it gets its default value.
+	 */
+	private void readObject(ObjectInputStream in)
+	    throws IOException, ClassNotFoundException {
+		ObjectInputStream.GetField fields = in.readFields();
+		m_archivingDirectory = (File) fields.get("m_archivingDirectory", null);
+		m_deltasPerBaseArchive = fields.get("m_deltasPerBaseArchive",
+		    DEFAULT_DELTAS_PER_BASE_ARCHIVE);
+		m_baseArchivesToKeep = fields.get("m_baseArchivesToKeep",
+		    DEFAULT_BASE_ARCHIVES_TO_KEEP);
+	}
+
 	public void setDirectory(File directory) {
 		if (!directory.exists()) {
 			directory.mkdir();
@@ -3,6 +3,7 @@ package eb.subwindow;
 import java.awt.Container;
 import java.awt.event.KeyEvent;
 import java.io.File;
+import java.util.Optional;
 
 import javax.swing.Box;
 import javax.swing.JButton;
@@ -14,6 +15,8 @@ import javax.swing.KeyStroke;
 
 import eb.data.DeckManager;
 import eb.utilities.ProgrammableAction;
+import eb.utilities.Utilities;
+import eb.utilities.ui_elements.LabelledTextField;
 
 @SuppressWarnings("serial")
 public class ArchivingSettingsWindow extends JFrame {
@@ -21,6 +24,12 @@ public class ArchivingSettingsWindow extends JFrame {
 	JLabel m_archivingLocation;
 	JButton m_changeLocationButton;
 
+	// how many archives with only the changed cards are written between two
+	// archives with all cards, and how many of the latter are kept
+	LabelledTextField m_deltasPerBaseArchive;
+	LabelledTextField m_baseArchivesToKeep;
+	JButton m_setRetentionButton;
+
 	ArchivingSettingsWindow() {
 		super("Deck archiving settings");
 		String archivingDirectoryName = DeckManager.getArchivingDirectoryName();
@@ -34,6 +43,31 @@ public class ArchivingSettingsWindow extends JFrame {
 		    "Location for archive files: " + displayedDirectoryName);
 		m_changeLocationButton = new JButton("Change location for archive files");
 		m_changeLocationButton.addActionListener(e -> changeArchivingLocation());
+		m_deltasPerBaseArchive = new LabelledTextField(
+		    "number of archives with only the changed cards between two full "
+		        + "archives",
+		    String.valueOf(DeckManager.getDeltasPerBaseArchive()), 3, 0);
+		m_baseArchivesToKeep = new LabelledTextField(
+		    "number of full archives to keep (0 keeps all)",
+		    String.valueOf(DeckManager.getBaseArchivesToKeep()), 3, 0);
+		m_setRetentionButton = new JButton("Set archive retention");
+		m_setRetentionButton.addActionListener(e -> setRetention());
+	}
+
+	private void setRetention() {
+		Optional<Integer> deltasPerBaseArchive = Utilities
+		    .stringToInt(m_deltasPerBaseArchive.getContents());
+		Optional<Integer> baseArchivesToKeep = Utilities
+		    .stringToInt(m_baseArchivesToKeep.getContents());
+		if (deltasPerBaseArchive.isPresent() && deltasPerBaseArchive.get() >= 0
+		    && baseArchivesToKeep.isPresent() && baseArchivesToKeep.get() >= 0) {
+			DeckManager.setArchiveRetention(deltasPerBaseArchive.get(),
+			    baseArchivesToKeep.get());
+		} else {
+			// restore the values that are in effect
+			m_deltasPerBaseArchive.setContents(DeckManager.getDeltasPerBaseArchive());
+			m_baseArchivesToKeep.setContents(DeckManager.getBaseArchivesToKeep());
+		}
 	}
 
 	private void changeArchivingLocation() {
@@ -51,10 +85,15 @@ public class ArchivingSettingsWindow extends JFrame {
 	}
 
 	private void init() {
-		Container box = Box.createHorizontalBox();
-		box.add(m_archivingLocation);
-		box.add(Box.createHorizontalStrut(10));
-		box.add(m_changeLocationButton);
+		Container locationBox = Box.createHorizontalBox();
+		locationBox.add(m_archivingLocation);
+		locationBox.add(Box.createHorizontalStrut(10));
+		locationBox.add(m_changeLocationButton);
+		Container box = Box.createVerticalBox();
+		box.add(locationBox);
+		box.add(m_deltasPerBaseArchive);
+		box.add(m_baseArchivesToKeep);
+		box.add(m_setRetentionButton);
 		add(box);
 		getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW)
 		    .put(KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "Cancel"); //$NON-NLS-1$
@@ -8,6 +8,7 @@ import javax.swing.JButton;
 import javax.swing.JOptionPane;
 
 import eb.data.Card;
+import eb.data.Deck;
 import eb.data.DeckManager;
 import eb.eventhandling.BlackBoard;
 import eb.eventhandling.Update;
@@ -171,19 +172,22 @@ public class CardEditingManager {
 	 * @param backText
 	 */
 	private void submitCardContents(String frontText, String backText) {
+		final Card changedCard;
 		if (inCardCreatingMode()) {
-			final Card candidateCard = new Card(frontText, backText);
-			DeckManager.getCurrentDeck().getCards().addCard(candidateCard);
+			Deck currentDeck = DeckManager.getCurrentDeck();
+			changedCard = new Card(frontText, backText, currentDeck.getClock());
+			currentDeck.getCards().addCard(changedCard);
 			m_cardEditingWindow.updateContents("", "");
 			m_cardEditingWindow.focusFront();
 		} else {
 			// in editing mode
+			changedCard = m_cardToBeModified;
 			m_cardToBeModified.setFront(frontText);
 			m_cardToBeModified.setBack(backText);
 			c_cardsBeingEdited.remove(m_cardToBeModified);
 			m_cardEditingWindow.dispose();
 		}
-		BlackBoard.post(new Update(UpdateType.CARD_CHANGED));
+		BlackBoard.post(Update.withPayload(UpdateType.CARD_CHANGED, changedCard));
 	}
 
 	public void endEditing() {
@@ -0,0 +1,64 @@
+package eb.subwindow;
+
+import eb.utilities.Utilities;
+
+/**
+ * The algorithms that Eb can use to decide when a card should be reviewed
+ * again; which one is used can be chosen per deck, in its study options.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+public enum SchedulingAlgorithm {
+
+	// each successful review multiplies the interval by the lengthening factor
+	EXPONENTIAL("exponential", true, true),
+
+	// SuperMemo 2: the interval grows by an 'easiness factor' that decreases
+	// each time the card is forgotten
+	SM2("SM-2", true, false),
+
+	// a model of memory stability in the style of the Free Spaced Repetition
+	// Scheduler, which takes the time between the reviews into account
+	FSRS("FSRS", false, false);
+
+	private final String m_uiName;
+
+	// which of the study options that shape the intervals after successful
+	// reviews the algorithm uses; the others are ignored
+	private final boolean m_usesRememberedCardInterval;
+	private final boolean m_usesLengtheningFactor;
+
+	SchedulingAlgorithm(String name, boolean usesRememberedCardInterval,
+	    boolean usesLengtheningFactor) {
+		m_uiName = name;
+		m_usesRememberedCardInterval = usesRememberedCardInterval;
+		m_usesLengtheningFactor = usesLengtheningFactor;
+	}
+
+	public String getName() {
+		return m_uiName;
+	}
+
+	public boolean usesRememberedCardInterval() {
+		return m_usesRememberedCardInterval;
+	}
+
+	public boolean usesLengtheningFactor() {
+		return m_usesLengtheningFactor;
+	}
+
+	public static SchedulingAlgorithm stringToSchedulingAlgorithm(String value) {
+		Utilities.require(value != null,
+		    "SchedulingAlgorithm.stringToSchedulingAlgorithm() error: "
+		        + "the incoming value may not be null.");
+		for (SchedulingAlgorithm algorithm : values()) {
+			if (algorithm.m_uiName.equals(value)) {
+				return algorithm;
+			}
+		}
+		Utilities.require(false,
+		    "SchedulingAlgorithm.stringToSchedulingAlgorithm() error: "
+		        + "I don't recognize algorithm '" + value + "'");
+		return null;
+	}
+}
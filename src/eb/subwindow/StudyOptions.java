@@ -51,19 +51,28 @@ public class StudyOptions implements Serializable {
 	    5.0, TimeUnit.SECOND);
 	private TimeInterval m_timerInterval;
 
+	private static final SchedulingAlgorithm DEFAULT_SCHEDULING_ALGORITHM =
+	    SchedulingAlgorithm.EXPONENTIAL;
+
+	// the algorithm that decides when cards should be reviewed again. May be
+	// null in study options saved before the algorithm could be chosen.
+	private SchedulingAlgorithm m_schedulingAlgorithm;
+
 	/**
-	 * StudyOptions constructor; sets all elements to proper initial values.
+	 * StudyOptions constructor; sets all elements to proper initial values. Is
+	 * public so that study options can be restored when a deck is read from
+	 * disk.
 	 *
 	 * @param initialInterval
 	 *          the interval that Eb waits after creation of a card before showing
 	 *          it to the user.
 	 */
-	StudyOptions(TimeInterval initialInterval,
+	public StudyOptions(TimeInterval initialInterval,
 	    Optional<Integer> reviewSessionSize, TimeInterval rememberedInterval,
 	    TimeInterval forgottenInterval, Optional<Double> lengtheningFactor,
-	    TimedModus isTimed, TimeInterval timerInterval) {
-		// preconditions: none. Is private constructor, should be fed valid values
-		// internally
+	    TimedModus isTimed, TimeInterval timerInterval,
+	    SchedulingAlgorithm schedulingAlgorithm) {
+		// preconditions: none. Should be fed valid values internally
 		m_initialInterval = new TimeInterval(initialInterval);
 		m_reviewSessionSize = reviewSessionSize.orElse(DEFAULT_REVIEW_SESSION_SIZE);
 		m_rememberedCardInterval = new TimeInterval(rememberedInterval);
@@ -71,6 +80,7 @@ public class StudyOptions implements Serializable {
 		m_forgottenCardInterval = new TimeInterval(forgottenInterval);
 		m_isTimed = isTimed;
 		m_timerInterval = timerInterval;
+		m_schedulingAlgorithm = schedulingAlgorithm;
 		// postconditions: none. Should work.
 	}
 
@@ -100,7 +110,7 @@ public class StudyOptions implements Serializable {
 		return new StudyOptions(DEFAULT_INITIAL_INTERVAL,
 		    Optional.of(DEFAULT_REVIEW_SESSION_SIZE), DEFAULT_REMEMBERED_INTERVAL,
 		    DEFAULT_FORGOTTEN_INTERVAL, Optional.of(DEFAULT_LENGTHENING_FACTOR),
-		    DEFAULT_IS_TIMED, DEFAULT_TIMER_INTERVAL);
+		    DEFAULT_IS_TIMED, DEFAULT_TIMER_INTERVAL, DEFAULT_SCHEDULING_ALGORITHM);
 		// postconditions: none. Should have worked.
 	}
 
@@ -132,7 +142,8 @@ public class StudyOptions implements Serializable {
 			        otherOptions.m_lengtheningFactor)
 			    && m_forgottenCardInterval
 			        .equals(otherOptions.m_forgottenCardInterval)
-			    && timerSettingsSameAs(otherOptions);
+			    && timerSettingsSameAs(otherOptions)
+			    && getSchedulingAlgorithm() == otherOptions.getSchedulingAlgorithm();
 		}
 	}
 
@@ -151,7 +162,7 @@ public class StudyOptions implements Serializable {
 	public int hashCode() {
 		return Objects.hash(m_initialInterval, m_reviewSessionSize,
 		    m_rememberedCardInterval, m_forgottenCardInterval, m_isTimed,
-		    m_timerInterval);
+		    m_timerInterval, getSchedulingAlgorithm());
 	}
 
 	public int getReviewSessionSize() {
@@ -184,4 +195,11 @@ public class StudyOptions implements Serializable {
 	public TimedModus getTimedModus() {
 		return m_isTimed;
 	}
+
+	public SchedulingAlgorithm getSchedulingAlgorithm() {
+		if (m_schedulingAlgorithm == null) {
+			m_schedulingAlgorithm = DEFAULT_SCHEDULING_ALGORITHM;
+		}
+		return m_schedulingAlgorithm;
+	}
 }
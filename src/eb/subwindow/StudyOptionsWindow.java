@@ -70,6 +70,8 @@ public class StudyOptionsWindow extends JFrame implements Listener {
 
 	private final TimeInputElement m_timeForTimer;
 
+	private final LabelledComboBox m_schedulingAlgorithm;
+
 	/**
 	 * Creates a new Study Options window.
 	 */
@@ -96,6 +98,14 @@ public class StudyOptionsWindow extends JFrame implements Listener {
 		m_timedModus = new LabelledComboBox("normal or timed", normalTimedOptions);
 		m_timeForTimer = TimeInputElement.createInstance(
 		    "Maximum time for answering a card:", studyOptions.getTimerInterval());
+		SchedulingAlgorithm[] algorithms = SchedulingAlgorithm.values();
+		String[] algorithmNames = new String[algorithms.length];
+		for (int algorithmIndex = 0; algorithmIndex < algorithms.length;
+		    algorithmIndex++) {
+			algorithmNames[algorithmIndex] = algorithms[algorithmIndex].getName();
+		}
+		m_schedulingAlgorithm = new LabelledComboBox("scheduling algorithm",
+		    algorithmNames);
 
 		m_cancelButton = new JButton("Discard unsaved changes and close");
 		m_loadEbDefaultsButton = new JButton("Load Eb's default values");
@@ -124,6 +134,11 @@ public class StudyOptionsWindow extends JFrame implements Listener {
 		}
 		setTitle(title);
 		m_timeForTimer.setVisible(guiStudyOptions.isTimed());
+		// grey out the options that the chosen algorithm ignores
+		SchedulingAlgorithm algorithm = guiStudyOptions.getSchedulingAlgorithm();
+		m_timeToWaitAfterCorrectReview
+		    .setEnabled(algorithm.usesRememberedCardInterval());
+		m_lengtheningFactor.setEnabled(algorithm.usesLengtheningFactor());
 		// postconditions: none. Simply changes the frame's title.
 	}
 
@@ -148,6 +163,7 @@ public class StudyOptionsWindow extends JFrame implements Listener {
 		m_timedModus.setTo(settings.getTimedModus().getName());
 		m_timeForTimer.setVisible(settings.isTimed());
 		m_timeForTimer.setInterval(settings.getTimerInterval());
+		m_schedulingAlgorithm.setTo(settings.getSchedulingAlgorithm().getName());
 	}
 
 	/**
@@ -182,7 +198,9 @@ public class StudyOptionsWindow extends JFrame implements Listener {
 		    m_timeToWaitAfterIncorrectReview.getInterval(),
 		    Utilities.stringToDouble(m_lengtheningFactor.getContents()),
 		    TimedModus.stringToTimedModus(m_timedModus.getValue()),
-		    m_timeForTimer.getInterval());
+		    m_timeForTimer.getInterval(),
+		    SchedulingAlgorithm
+		        .stringToSchedulingAlgorithm(m_schedulingAlgorithm.getValue()));
 	}
 
 	/**
@@ -241,6 +259,9 @@ public class StudyOptionsWindow extends JFrame implements Listener {
 		settingsBox.add(m_timedModus);
 		settingsBox.add(m_timeForTimer);
 		m_timeForTimer.setVisible(currentStudyOptions.isTimed());
+		m_schedulingAlgorithm
+		    .setTo(currentStudyOptions.getSchedulingAlgorithm().getName());
+		settingsBox.add(m_schedulingAlgorithm);
 		settingsPane.add(settingsBox, BorderLayout.NORTH);
 
 		buttonsPane.add(m_cancelButton);
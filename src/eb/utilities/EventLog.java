@@ -0,0 +1,193 @@
+package eb.utilities;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The EventLog is a log for Eb's time-critical code (like the code that runs
+ * when the user answers a card). Messages below the level of the log are
+ * discarded after a single comparison, without creating any objects: the
+ * message is a constant string and its values are passed as primitives, so no
+ * text has to be built by the caller. Messages that pass the level are put in a
+ * ring buffer of fixed size, and written to the global Logger by a background
+ * thread; if the buffer is full, messages are dropped (and counted) rather
+ * than making the caller wait.
+ * 
+ * @author Eric-Wubbo Lameijer
+ */
+public class EventLog {
+
+	// the number of messages the buffer can hold
+	private static final int CAPACITY = 1024;
+
+	// how often the background thread writes the buffered messages, in
+	// milliseconds
+	private static final long WRITING_INTERVAL = 100;
+
+	// the lowest level that is logged; stored as int, so checking the level is
+	// a single comparison
+	private static volatile int c_threshold = Level.INFO.intValue();
+
+	// the ring buffer: the level, message and values of each buffered message
+	private static final Level[] c_levels = new Level[CAPACITY];
+	private static final String[] c_messages = new String[CAPACITY];
+	private static final long[] c_firstValues = new long[CAPACITY];
+	private static final long[] c_secondValues = new long[CAPACITY];
+	private static final int[] c_valueCounts = new int[CAPACITY];
+
+	// the number of messages ever written into the buffer and read from it; the
+	// slot of message n is n % CAPACITY. Guarded by the lock.
+	private static long c_writeCount;
+	private static long c_readCount;
+
+	// the number of messages dropped because the buffer was full, since the
+	// latest report of dropped messages. Guarded by the lock.
+	private static long c_droppedCount;
+
+	private static final Object c_lock = new Object();
+
+	// writes the buffered messages to the global Logger
+	private static final ScheduledExecutorService c_writer = Executors
+	    .newSingleThreadScheduledExecutor(runnable -> {
+		    Thread thread = new Thread(runnable, "Eb event log");
+		    thread.setDaemon(true);
+		    return thread;
+	    });
+
+	static {
+		c_writer.scheduleWithFixedDelay(EventLog::flush, WRITING_INTERVAL,
+		    WRITING_INTERVAL, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Hide implicit public constructor, as this is a static utility class.
+	 */
+	private EventLog() {
+		Utilities.require(false, "EventLog constructor error: "
+		    + "EventLog is a static utility class and objects of it should not be "
+		    + "created.");
+	}
+
+	/**
+	 * Sets the lowest level of the messages that are logged.
+	 * 
+	 * @param level
+	 *          the lowest level that is logged (Level.OFF logs nothing)
+	 */
+	public static void setLevel(Level level) {
+		Utilities.require(level != null,
+		    "EventLog.setLevel() error: the level cannot be null.");
+		c_threshold = level.intValue();
+	}
+
+	/**
+	 * Returns whether messages of the given level are logged.
+	 * 
+	 * @param level
+	 *          the level of a message
+	 * @return whether messages of that level are logged
+	 */
+	public static boolean isLoggable(Level level) {
+		return level.intValue() >= c_threshold
+		    && c_threshold != Level.OFF.intValue();
+	}
+
+	public static void log(Level level, String message) {
+		if (isLoggable(level)) {
+			add(level, message, 0, 0, 0);
+		}
+	}
+
+	public static void log(Level level, String message, long value) {
+		if (isLoggable(level)) {
+			add(level, message, value, 0, 1);
+		}
+	}
+
+	public static void log(Level level, String message, long firstValue,
+	    long secondValue) {
+		if (isLoggable(level)) {
+			add(level, message, firstValue, secondValue, 2);
+		}
+	}
+
+	private static void add(Level level, String message, long firstValue,
+	    long secondValue, int valueCount) {
+		synchronized (c_lock) {
+			if (c_writeCount - c_readCount == CAPACITY) {
+				c_droppedCount++;
+				return;
+			}
+			int slot = (int) (c_writeCount % CAPACITY);
+			c_levels[slot] = level;
+			c_messages[slot] = message;
+			c_firstValues[slot] = firstValue;
+			c_secondValues[slot] = secondValue;
+			c_valueCounts[slot] = valueCount;
+			c_writeCount++;
+		}
+	}
+
+	/**
+	 * Writes the buffered messages to the global Logger. Is called regularly by
+	 * the background thread, but can also be called directly, for example
+	 * before Eb quits.
+	 */
+	public static void flush() {
+		Logger logger = Logger.getGlobal();
+		while (true) {
+			Level level;
+			String message;
+			long firstValue;
+			long secondValue;
+			int valueCount;
+			long droppedCount;
+			synchronized (c_lock) {
+				if (c_readCount == c_writeCount && c_droppedCount == 0) {
+					return;
+				}
+				droppedCount = c_droppedCount;
+				c_droppedCount = 0;
+				if (c_readCount == c_writeCount) {
+					level = null;
+					message = null;
+					firstValue = 0;
+					secondValue = 0;
+					valueCount = 0;
+				} else {
+					int slot = (int) (c_readCount % CAPACITY);
+					level = c_levels[slot];
+					message = c_messages[slot];
+					firstValue = c_firstValues[slot];
+					secondValue = c_secondValues[slot];
+					valueCount = c_valueCounts[slot];
+					c_messages[slot] = null;
+					c_readCount++;
+				}
+			}
+			if (droppedCount > 0) {
+				logger.warning("EventLog: " + droppedCount + " messages were "
+				    + "dropped, as the buffer was full.");
+			}
+			if (message != null) {
+				logger.log(level, format(message, firstValue, secondValue,
+				    valueCount));
+			}
+		}
+	}
+
+	private static String format(String message, long firstValue,
+	    long secondValue, int valueCount) {
+		switch (valueCount) {
+		case 0:
+			return message;
+		case 1:
+			return message + ": " + firstValue;
+		default:
+			return message + ": " + firstValue + ", " + secondValue;
+		}
+	}
+}
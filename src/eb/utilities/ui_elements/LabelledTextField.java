@@ -62,4 +62,11 @@ public class LabelledTextField extends JPanel {
 	public void setContents(double d) {
 		setContents(String.valueOf(d));
 	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		super.setEnabled(enabled);
+		m_label.setEnabled(enabled);
+		m_textField.setEnabled(enabled);
+	}
 }
@@ -130,6 +130,14 @@ public class TimeInputElement extends JPanel {
 		// postconditions: none. I assume that all goes well.
 	}
 
+	@Override
+	public void setEnabled(boolean enabled) {
+		super.setEnabled(enabled);
+		m_label.setEnabled(enabled);
+		m_scalarField.setEnabled(enabled);
+		m_unitComboBox.setEnabled(enabled);
+	}
+
 	private void notifyDataFieldChangeListeners() {
 		BlackBoard.post(new Update(UpdateType.INPUTFIELD_CHANGED));
 	}